@@ -0,0 +1,73 @@
+package io.github.dmlloyd.im.benchmarks;
+
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.dmlloyd.im.Issue;
+import io.github.dmlloyd.im.jira.JiraIssue;
+import io.github.dmlloyd.im.jira.JiraIssueParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of a single Jira issue's JSON, with the JSON-B binding and the streaming parser, and its conversion to
+ * an {@link Issue}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JiraIssueParserBenchmark {
+    @Param({"500", "20000"})
+    public int descriptionLength;
+
+    @Param({"0", "10", "200"})
+    public int comments;
+
+    private String json;
+    private JiraIssueParser binding;
+    private JiraIssueParser streaming;
+    private JiraIssue issue;
+
+    @Setup
+    public void setup() {
+        json = Texts.jiraIssue(new Random(1234), 4321, descriptionLength, comments, 20000);
+        binding = new JiraIssueParser(false, 1);
+        streaming = new JiraIssueParser(true, 1);
+        issue = binding.parse(new StringReader(json));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        binding.close();
+        streaming.close();
+    }
+
+    @Benchmark
+    public JiraIssue parseBinding() {
+        return binding.parse(new StringReader(json));
+    }
+
+    @Benchmark
+    public JiraIssue parseStreaming() {
+        return streaming.parse(new StringReader(json));
+    }
+
+    @Benchmark
+    public Issue toIssue() {
+        return issue.toIssue();
+    }
+}
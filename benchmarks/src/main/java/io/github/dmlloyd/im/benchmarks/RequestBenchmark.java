@@ -0,0 +1,101 @@
+package io.github.dmlloyd.im.benchmarks;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.dmlloyd.im.Comment;
+import io.github.dmlloyd.im.GitHub;
+import io.github.dmlloyd.im.Issue;
+import io.github.dmlloyd.im.IssueNumberMap;
+import io.github.dmlloyd.im.MarkdownConverter;
+import io.github.dmlloyd.im.jira.JiraIssueParser;
+import jakarta.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Building of GitHub issue and comment creation requests from Jira HTML, which covers HTML-to-Markdown conversion
+ * and issue key remapping, and serialization of the requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBenchmark {
+    private static final URI JIRA_URL = URI.create("https://issues.redhat.com/");
+
+    @Param({"500", "20000"})
+    public int descriptionLength;
+
+    @Param({"10"})
+    public int comments;
+
+    private Issue issue;
+    private GitHub.IssueCreationFactory uncachedIssues;
+    private GitHub.CommentCreationFactory uncachedComments;
+    private GitHub.IssueCreationFactory cachedIssues;
+    private GitHub.IssueCreationFactory preconvertedIssues;
+    private JsonObject request;
+
+    @Setup
+    public void setup() throws Exception {
+        try (JiraIssueParser parser = new JiraIssueParser()) {
+            issue = parser.parse(new StringReader(Texts.jiraIssue(new Random(1234), 4321, descriptionLength, comments, 20000))).toIssue();
+        }
+        final IssueNumberMap numbers = new IssueNumberMap();
+        for (int i = 1; i <= 20000; i++) {
+            numbers.put("WFLY-" + i, Integer.valueOf(i + 100));
+        }
+        // a converter which never caches, so every invocation converts
+        final MarkdownConverter uncached = new MarkdownConverter(0, 0);
+        uncachedIssues = new GitHub.IssueCreationFactory(JIRA_URL, Map.of(), uncached);
+        uncachedComments = new GitHub.CommentCreationFactory(JIRA_URL, Map.of(), numbers, uncached);
+        cachedIssues = new GitHub.IssueCreationFactory(JIRA_URL, Map.of(), new MarkdownConverter(4096, Integer.MAX_VALUE));
+        preconvertedIssues = new GitHub.IssueCreationFactory(JIRA_URL, Map.of(), MarkdownConverter.identity());
+        request = uncachedIssues.issueCreateRequest(issue);
+    }
+
+    @Benchmark
+    public JsonObject issueRequest() {
+        return uncachedIssues.issueCreateRequest(issue);
+    }
+
+    @Benchmark
+    public JsonObject issueRequestCached() {
+        return cachedIssues.issueCreateRequest(issue);
+    }
+
+    @Benchmark
+    public JsonObject issueRequestPreconverted() {
+        return preconvertedIssues.issueCreateRequest(issue);
+    }
+
+    @Benchmark
+    public void commentRequests(final Blackhole bh) {
+        final List<Comment> list = issue.comments();
+        for (Comment comment : list) {
+            bh.consume(uncachedComments.commentCreateRequest(issue, comment));
+        }
+    }
+
+    @Benchmark
+    public String serialize() {
+        return request.toString();
+    }
+}
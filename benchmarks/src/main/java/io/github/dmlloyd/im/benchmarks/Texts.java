@@ -0,0 +1,123 @@
+package io.github.dmlloyd.im.benchmarks;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+
+/**
+ * Synthetic text resembling Jira content.
+ */
+final class Texts {
+    private static final String[] WORDS = {
+        "the", "server", "fails", "to", "start", "when", "deployment", "is", "missing", "a", "subsystem",
+        "configuration", "see", "stack", "trace", "below", "reproducer", "attached", "UTF-8", "$HOME", "C:\\temp",
+    };
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final ZonedDateTime EPOCH = ZonedDateTime.of(2015, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private Texts() {}
+
+    /**
+     * Generates Markdown of about the given length, with roughly one issue reference (plain key, URL or Markdown
+     * link) every dozen words.
+     */
+    static String markdown(final Random random, final int length, final int maxIssue) {
+        final StringBuilder b = new StringBuilder(length + 64);
+        while (b.length() < length) {
+            if (random.nextInt(12) == 0) {
+                final int issue = 1 + random.nextInt(maxIssue * 2);
+                switch (random.nextInt(3)) {
+                    case 0 -> b.append("WFLY-").append(issue);
+                    case 1 -> b.append("https://issues.redhat.com/browse/WFLY-").append(issue);
+                    default -> b.append("[WFLY-").append(issue).append("](https://issues.redhat.com/browse/WFLY-").append(issue).append(')');
+                }
+            } else {
+                b.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            b.append(random.nextInt(10) == 0 ? '\n' : ' ');
+        }
+        return b.toString();
+    }
+
+    /**
+     * Generates Jira-style HTML of about the given length: paragraphs with inline markup, issue links, lists and
+     * code blocks.
+     */
+    static String html(final Random random, final int length, final int maxIssue) {
+        final StringBuilder b = new StringBuilder(length + 256);
+        while (b.length() < length) {
+            switch (random.nextInt(6)) {
+                case 0 -> {
+                    b.append("<ul>");
+                    for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                        b.append("<li>").append(markdown(random, 40, maxIssue)).append("</li>");
+                    }
+                    b.append("</ul>\n");
+                }
+                case 1 -> b.append("<div class=\"code panel\"><pre>").append(markdown(random, 200, maxIssue).replace("<", "&lt;")).append("</pre></div>\n");
+                default -> {
+                    final int issue = 1 + random.nextInt(maxIssue);
+                    b.append("<p>").append(markdown(random, 80, maxIssue))
+                        .append(" <b>").append(WORDS[random.nextInt(WORDS.length)]).append("</b> ")
+                        .append("<a href=\"https://issues.redhat.com/browse/WFLY-").append(issue).append("\">WFLY-").append(issue).append("</a> ")
+                        .append("<tt>").append(WORDS[random.nextInt(WORDS.length)]).append("</tt>")
+                        .append(markdown(random, 80, maxIssue)).append("</p>\n");
+                }
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * Generates the JSON of a Jira issue as returned by the REST API, with an HTML description of about the given
+     * length and the given number of comments.
+     */
+    static String jiraIssue(final Random random, final int number, final int descriptionLength, final int comments, final int maxIssue) {
+        final ZonedDateTime created = EPOCH.plusMinutes(random.nextInt(5_000_000));
+        final JsonArrayBuilder commentArray = Json.createArrayBuilder();
+        for (int i = 0; i < comments; i++) {
+            final ZonedDateTime commented = created.plusMinutes(i * 60L + random.nextInt(60));
+            commentArray.add(Json.createObjectBuilder()
+                .add("id", Integer.toString(number * 1000 + i))
+                .add("author", user(random))
+                .add("updateAuthor", user(random))
+                .add("body", html(random, 100 + random.nextInt(1000), maxIssue))
+                .add("created", DATE_FORMAT.format(commented))
+                .add("updated", DATE_FORMAT.format(commented)));
+        }
+        return Json.createObjectBuilder()
+            .add("id", Integer.toString(1_000_000 + number))
+            .add("key", "WFLY-" + number)
+            .add("fields", Json.createObjectBuilder()
+                .add("summary", markdown(random, 60, maxIssue).strip())
+                .add("description", html(random, descriptionLength, maxIssue))
+                .add("issuetype", Json.createObjectBuilder().add("id", "1").add("name", "Bug").add("description", "A problem"))
+                .add("assignee", user(random))
+                .add("reporter", user(random))
+                .add("creator", user(random))
+                .add("created", DATE_FORMAT.format(created))
+                .add("updated", DATE_FORMAT.format(created.plusDays(comments)))
+                .add("comment", Json.createObjectBuilder()
+                    .add("startAt", 0)
+                    .add("maxResults", comments)
+                    .add("total", comments)
+                    .add("comments", commentArray)))
+            .build()
+            .toString();
+    }
+
+    private static JsonObjectBuilder user(final Random random) {
+        final String name = "user" + random.nextInt(500);
+        return Json.createObjectBuilder()
+            .add("key", name)
+            .add("name", name)
+            .add("displayName", "User " + name)
+            .add("active", true);
+    }
+}
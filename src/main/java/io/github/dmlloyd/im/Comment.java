@@ -4,8 +4,14 @@ import java.time.ZonedDateTime;
 
 /**
  * An issue comment.
+ *
+ * @param id      the stable identity of the comment within its issue, such as its Jira comment id
+ * @param author  the GitHub login of the author
+ * @param created the creation time
+ * @param body    the body
  */
 public record Comment(
+    String id,
     String author,
     ZonedDateTime created,
     String body
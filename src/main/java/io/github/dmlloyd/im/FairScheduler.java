@@ -0,0 +1,157 @@
+package io.github.dmlloyd.im;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * A counting semaphore which shares its permits fairly between lanes, such as the projects of a multi-project
+ * migration.
+ * <p>
+ * Permits are acquired through a {@linkplain #lane(String) lane}. While permits are short, a released permit goes to
+ * the next lane which has waiters, in round-robin order, so every busy lane gets an equal share no matter how many
+ * waiters it has. Within a lane, waiters are served in order. Permits can be acquired both blocking and
+ * asynchronously. Instances are safe for concurrent use.
+ */
+public final class FairScheduler {
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    // lanes with waiters, in the order of their next turn; guarded by itself
+    private final ArrayDeque<Lane> turns = new ArrayDeque<>();
+    private int available;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param permits the number of permits shared by all lanes
+     */
+    public FairScheduler(final int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits must be positive (" + permits + ")");
+        }
+        this.available = permits;
+    }
+
+    /**
+     * Returns the lane with the given name, creating it if needed.
+     *
+     * @param name the lane name
+     *
+     * @return the lane
+     */
+    public Lane lane(final String name) {
+        return lanes.computeIfAbsent(name, Lane::new);
+    }
+
+    private void release() {
+        for (;;) {
+            final CompletableFuture<Void> next;
+            synchronized (turns) {
+                final Lane lane = turns.pollFirst();
+                if (lane == null) {
+                    available++;
+                    return;
+                }
+                next = lane.waiters.pollFirst();
+                if (!lane.waiters.isEmpty()) {
+                    turns.addLast(lane);
+                }
+            }
+            // hand the permit straight to the next waiter, outside the lock, unless it gave up waiting
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A lane of a fair scheduler.
+     */
+    public final class Lane {
+        private final String name;
+        // guarded by turns
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+        Lane(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * {@return the lane name}
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Blocks until a permit is granted to this lane.
+         *
+         * @throws InterruptedException if the thread was interrupted while waiting, in which case no permit was
+         *      acquired
+         */
+        public void acquire() throws InterruptedException {
+            final CompletableFuture<Void> permit = acquireAsync();
+            try {
+                permit.get();
+            } catch (InterruptedException e) {
+                if (!permit.cancel(false)) {
+                    // granted just now
+                    release();
+                }
+                throw e;
+            } catch (ExecutionException | CancellationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Releases a permit acquired through this lane.
+         */
+        public void release() {
+            FairScheduler.this.release();
+        }
+
+        /**
+         * Runs the operation once a permit is granted to this lane, and releases the permit when the operation
+         * completes.
+         *
+         * @param operation the operation to start
+         *
+         * @return a future of the operation's result
+         */
+        public <T> CompletableFuture<T> run(final Supplier<CompletableFuture<T>> operation) {
+            return acquireAsync().thenCompose(ignored -> {
+                final CompletableFuture<T> result;
+                try {
+                    result = operation.get();
+                } catch (Throwable t) {
+                    release();
+                    return CompletableFuture.failedFuture(t);
+                }
+                return result.whenComplete((r, ex) -> release());
+            });
+        }
+
+        private CompletableFuture<Void> acquireAsync() {
+            synchronized (turns) {
+                if (available > 0 && turns.isEmpty()) {
+                    available--;
+                    return CompletableFuture.completedFuture(null);
+                }
+                final CompletableFuture<Void> waiter = new CompletableFuture<>();
+                if (waiters.isEmpty()) {
+                    turns.addLast(this);
+                }
+                waiters.addLast(waiter);
+                return waiter;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -1,22 +1,30 @@
 package io.github.dmlloyd.im;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 
-import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
 import jakarta.json.Json;
+import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
-import org.jetbrains.annotations.NotNull;
+import jakarta.json.JsonValue;
 
 /**
  * Stuff for dealing with GitHub.
@@ -24,16 +32,44 @@ import org.jetbrains.annotations.NotNull;
 public final class GitHub {
     private GitHub() {}
 
+    /**
+     * The settings shared by the GitHub clients.
+     *
+     * @param jiraUrl     the base URL of the Jira instance the issues are migrated from
+     * @param owner       the owner of the repository to create issues in
+     * @param repo        the name of the repository to create issues in
+     * @param userMapping the GitHub logins of Jira users, by Jira user name
+     * @param converter   the converter of issue and comment content to Markdown
+     */
+    public record Settings(URI jiraUrl, String owner, String repo, Map<String, String> userMapping, MarkdownConverter converter) {
+        /**
+         * Creates settings without a user mapping, for content which was converted to Markdown already.
+         *
+         * @param jiraUrl the base URL of the Jira instance the issues are migrated from
+         * @param owner   the owner of the repository to create issues in
+         * @param repo    the name of the repository to create issues in
+         */
+        public Settings(final URI jiraUrl, final String owner, final String repo) {
+            this(jiraUrl, owner, repo, Map.of(), MarkdownConverter.identity());
+        }
+    }
+
     /**
      * Used to construct the issue creation request.
      */
     public static final class IssueCreationFactory {
         private final URI jiraUrl;
         private final Map<String, String> userMapping;
+        private final MarkdownConverter converter;
 
         public IssueCreationFactory(final URI jiraUrl, final Map<String, String> userMapping) {
+            this(jiraUrl, userMapping, MarkdownConverter.shared());
+        }
+
+        public IssueCreationFactory(final URI jiraUrl, final Map<String, String> userMapping, final MarkdownConverter converter) {
             this.jiraUrl = fixJiraUri(jiraUrl);
             this.userMapping = userMapping;
+            this.converter = converter;
         }
 
         public JsonObject issueCreateRequest(Issue issue) {
@@ -43,7 +79,7 @@ public final class GitHub {
             StringBuilder mdDesc = new StringBuilder(1024);
             mdDesc.append("This issue was imported from JIRA. The original issue was: ");
             mdDesc.append('[').append(issue.key()).append(']').append('(').append(jiraUrl).append("browse/").append(issue.key()).append(')').append("\n\n");
-            mdDesc.append(FlexmarkHtmlConverter.builder().build().convert(issue.description()));
+            mdDesc.append(converter.convert(issue.description()));
             mdDesc.append("\n\nOriginal issue creation date: ").append(issue.created());
             mdDesc.append("\nOriginal issue updated date: ").append(issue.updated());
             if (issue.resolved() != null) {
@@ -64,11 +100,17 @@ public final class GitHub {
         private final URI jiraUrl;
         private final Map<String, String> userMapping;
         private final Map<String, Integer> mappedIssueNumbers;
+        private final MarkdownConverter converter;
 
         public CommentCreationFactory(final URI jiraUrl, final Map<String, String> userMapping, final Map<String, Integer> mappedIssueNumbers) {
+            this(jiraUrl, userMapping, mappedIssueNumbers, MarkdownConverter.shared());
+        }
+
+        public CommentCreationFactory(final URI jiraUrl, final Map<String, String> userMapping, final Map<String, Integer> mappedIssueNumbers, final MarkdownConverter converter) {
             this.jiraUrl = jiraUrl;
             this.userMapping = userMapping;
             this.mappedIssueNumbers = mappedIssueNumbers;
+            this.converter = converter;
         }
 
         public JsonObject commentCreateRequest(Issue issue, Comment comment) {
@@ -76,9 +118,9 @@ public final class GitHub {
             StringBuilder mdDesc = new StringBuilder(1024);
             mdDesc.append("This comment was imported from JIRA.\n\n");
             // todo: comment link
-            mdDesc.append(FlexmarkHtmlConverter.builder().build().convert(comment.body()));
+            mdDesc.append(converter.convert(comment.body()));
             mdDesc.append("\n\nOriginal comment creation date: ").append(comment.created());
-            root.add("body", remapIssueKeys(mdDesc.toString(), mappedIssueNumbers));
+            root.add("body", IssueKeyRemapper.remap(mdDesc.toString(), mappedIssueNumbers));
             return root.build();
         }
     }
@@ -102,7 +144,7 @@ public final class GitHub {
                 throw new IllegalArgumentException("The issue key " + issue.key() + " was not mapped");
             }
             // this is pretty janky
-            root.add("body", remapIssueKeys(originalBody, mappedIssueNumbers));
+            root.add("body", IssueKeyRemapper.remap(originalBody, mappedIssueNumbers));
             // todo: issue status
             // root.add("state", "open"|"closed");
             // root.add("state_reason", "completed"|"not_planned"|"reopened");
@@ -112,24 +154,53 @@ public final class GitHub {
 
     /**
      * HTTP client for dealing with GitHub.
+     * <p>
+     * Given a {@link MigrationJournal}, the client records every issue and comment it creates, and skips creating
+     * those which were already recorded by an earlier run.
+     * <p>
+     * Each write is sent with a token of the {@link TokenPool}: the token of the author of the issue or comment if the
+     * author has one, or otherwise one of the bot tokens.
      */
     public static final class Client {
-        private final HttpClient client;
+        /**
+         * The base URL of the GitHub REST API.
+         */
+        public static final URI DEFAULT_API_URL = URI.create("https://api.github.com/");
+
+        private static final int MAX_RATE_LIMIT_RETRIES = 5;
+        private static final HttpResponse.BodyHandler<JsonObject> JSON_HANDLER = ri -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> readObject(Transport.decode(ri.headers(), bytes)));
+
+        private final Transport transport;
+        private final URI apiUrl;
         private final URI jiraUrl;
         private final String owner;
         private final String repo;
         private final Map<String, String> userMapping;
-        private final Map<String, String> tokens;
-        private final String defaultToken;
+        private final TokenPool tokens;
+        private final MarkdownConverter converter;
+        private final RateLimitScheduler scheduler;
+        private final MigrationJournal journal;
 
-        public Client(final HttpClient client, final URI jiraUrl, final String owner, final String repo, final Map<String, String> userMapping, final Map<String, String> tokens, final String defaultToken) {
-            this.client = client;
-            this.jiraUrl = fixJiraUri(jiraUrl);
-            this.owner = owner;
-            this.repo = repo;
-            this.userMapping = userMapping;
+        /**
+         * Creates a new client.
+         *
+         * @param transport the HTTP transport
+         * @param apiUrl    the base URL of the GitHub REST API
+         * @param settings  the repository to create issues in, and how to render them
+         * @param tokens    the tokens to send writes with
+         * @param journal   the journal to record created issues and comments in, or {@code null} for none
+         */
+        public Client(final Transport transport, final URI apiUrl, final Settings settings, final TokenPool tokens, final MigrationJournal journal) {
+            this.transport = transport;
+            this.apiUrl = fixBaseUri(apiUrl, "GitHub API");
+            this.jiraUrl = fixJiraUri(settings.jiraUrl());
+            this.owner = settings.owner();
+            this.repo = settings.repo();
+            this.userMapping = settings.userMapping();
             this.tokens = tokens;
-            this.defaultToken = defaultToken;
+            this.converter = settings.converter();
+            this.scheduler = tokens.scheduler();
+            this.journal = journal;
         }
 
         /**
@@ -140,99 +211,675 @@ public final class GitHub {
          * @throws IOException if there was an error
          */
         public int createIssue(Issue issue) throws IOException {
-            IssueCreationFactory icf = new IssueCreationFactory(jiraUrl, userMapping);
+            final int created = journaledIssue(issue);
+            if (created != -1) {
+                return created;
+            }
+            IssueCreationFactory icf = new IssueCreationFactory(jiraUrl, userMapping, converter);
             JsonObject req = icf.issueCreateRequest(issue);
-            final String createdByJira = "<todo>";
-            final String token;
-            String createdBy = userMapping.get(createdByJira);
-            if (createdBy != null) {
-                token = tokens.getOrDefault(createdBy, defaultToken);
-            } else {
-                token = defaultToken;
-            }
-            final HttpRequest request = HttpRequest.newBuilder()
+            final int number = issueNumber(send(loginOf(issue.createdBy()), "POST", "/issues", req));
+            journalIssue(issue, number, contentHash(req));
+            return number;
+        }
+
+        public void createComment(Issue issue, Comment comment, final Map<String, Integer> mappedIssueNumbers) throws IOException {
+            Integer issueNum = mappedIssueNumbers.get(issue.key());
+            if (issueNum == null) {
+                throw new IllegalArgumentException("Issue " + issue.key() + " was not mapped");
+            }
+            if (journal != null && journal.commentId(issue.key(), comment.id()) != -1) {
+                return;
+            }
+            CommentCreationFactory ccf = new CommentCreationFactory(jiraUrl, userMapping, mappedIssueNumbers, converter);
+            JsonObject req = ccf.commentCreateRequest(issue, comment);
+            journalComment(issue, comment, send(loginOf(comment.author()), "POST", "/issues/" + issueNum + "/comments", req), contentHash(req));
+        }
+
+        /**
+         * Update the title and body of a created issue, remapping its Jira issue references to the GitHub issues
+         * created since. Given a journal, the issue is only updated if its content differs from the content it was
+         * last written with.
+         *
+         * @param issue the issue
+         * @param originalBody the body the issue was created with
+         * @param mappedIssueNumbers the map of Jira issue keys to GitHub issue numbers
+         * @return {@code true} if the issue was updated, or {@code false} if it was unchanged
+         * @throws IOException if there was an error
+         */
+        public boolean updateIssue(Issue issue, String originalBody, final Map<String, Integer> mappedIssueNumbers) throws IOException {
+            IssueUpdateFactory iuf = new IssueUpdateFactory(jiraUrl, mappedIssueNumbers);
+            JsonObject req = Json.createObjectBuilder(iuf.issueUpdateRequest(issue, originalBody)).add("title", issue.summary()).build();
+            final long hash = contentHash(req);
+            if (journal != null && journal.issueHash(issue.key()) == hash) {
+                return false;
+            }
+            final int number = mappedIssueNumbers.get(issue.key()).intValue();
+            HttpResponse<JsonObject> response = send(loginOf(issue.createdBy()), "PATCH", "/issues/" + number, req);
+            if (response.statusCode() != 200) {
+                throw new IOException("Failed with status " + response.statusCode() + ": " + response.body().getString("message", "<no message>"));
+            }
+            journalIssue(issue, number, hash);
+            return true;
+        }
+
+        /**
+         * Bring an issue created by an earlier run up to date. The issue is rendered again, with its references
+         * remapped, and updated only if its content differs from the content it was last written with, as
+         * recorded in the journal. Issues which were journaled without a content hash are always updated.
+         *
+         * @param issue the issue
+         * @param mappedIssueNumbers the map of Jira issue keys to GitHub issue numbers
+         * @return {@code true} if the issue was updated, or {@code false} if it was unchanged or was not created
+         *      by an earlier run
+         * @throws IOException if there was an error
+         * @throws IllegalStateException if this client has no journal
+         */
+        public boolean syncIssue(Issue issue, final Map<String, Integer> mappedIssueNumbers) throws IOException {
+            if (journaledIssue(issue) == -1) {
+                requireJournal();
+                return false;
+            }
+            IssueCreationFactory icf = new IssueCreationFactory(jiraUrl, userMapping, converter);
+            return updateIssue(issue, icf.issueCreateRequest(issue).getString("body"), mappedIssueNumbers);
+        }
+
+        /**
+         * Bring the comments of an issue which were created by an earlier run up to date. Each comment is matched to
+         * its GitHub comment by its id, rendered again, and updated only if its content differs from the content it
+         * was last written with, as recorded in the journal. Comments which were not created yet are left to
+         * {@link #createComment}, and GitHub comments whose Jira comment no longer exists are left as they are (see
+         * {@link #orphanedComments}).
+         *
+         * @param issue the issue
+         * @param mappedIssueNumbers the map of Jira issue keys to GitHub issue numbers
+         * @return the number of updated comments
+         * @throws IOException if there was an error
+         * @throws IllegalStateException if this client has no journal
+         */
+        public int syncComments(Issue issue, final Map<String, Integer> mappedIssueNumbers) throws IOException {
+            requireJournal();
+            CommentCreationFactory ccf = new CommentCreationFactory(jiraUrl, userMapping, mappedIssueNumbers, converter);
+            int updated = 0;
+            for (Comment comment : issue.comments()) {
+                final long id = journal.commentId(issue.key(), comment.id());
+                if (id == -1) {
+                    continue;
+                }
+                final JsonObject req = ccf.commentCreateRequest(issue, comment);
+                final long hash = contentHash(req);
+                if (journal.commentHash(issue.key(), comment.id()) == hash) {
+                    continue;
+                }
+                HttpResponse<JsonObject> response = send(loginOf(comment.author()), "PATCH", "/issues/comments/" + id, req);
+                if (response.statusCode() != 200) {
+                    throw new IOException("Failed with status " + response.statusCode() + ": " + response.body().getString("message", "<no message>"));
+                }
+                journal.recordComment(issue.key(), comment.id(), id, hash);
+                updated++;
+            }
+            return updated;
+        }
+
+        /**
+         * Find the comments of an issue which were created by an earlier run for a Jira comment which no longer
+         * exists, such as one deleted from Jira since. Such comments are never updated or deleted, so that they can
+         * be reviewed.
+         *
+         * @param issue the issue
+         * @return the GitHub ids of the orphaned comments, keyed by the ids of their Jira comments
+         * @throws IllegalStateException if this client has no journal
+         */
+        public Map<String, Long> orphanedComments(Issue issue) {
+            requireJournal();
+            final Map<String, Long> orphaned = new TreeMap<>(journal.commentIds(issue.key()));
+            for (Comment comment : issue.comments()) {
+                orphaned.remove(comment.id());
+            }
+            return orphaned;
+        }
+
+        private void requireJournal() {
+            if (journal == null) {
+                throw new IllegalStateException("Syncing requires a journal");
+            }
+        }
+
+        private int journaledIssue(final Issue issue) {
+            return journal == null ? -1 : journal.issueNumber(issue.key());
+        }
+
+        private void journalIssue(final Issue issue, final int number, final long hash) throws IOException {
+            if (journal != null) {
+                journal.recordIssue(issue.key(), number, hash);
+            }
+        }
+
+        private void journalComment(final Issue issue, final Comment comment, final HttpResponse<JsonObject> response, final long hash) throws IOException {
+            checkCreated(response);
+            if (journal != null) {
+                journal.recordComment(issue.key(), comment.id(), response.body().getJsonNumber("id").longValue(), hash);
+            }
+        }
+
+        /**
+         * Maps the author of an issue or comment to the GitHub login whose token the write is attributed to.
+         */
+        private String loginOf(final String author) {
+            return author == null ? null : userMapping.getOrDefault(author, author);
+        }
+
+        private HttpRequest newRequest(final String token, final String method, final String path, final JsonObject req) {
+            return transport.newRequest(apiUrl.resolve("repos/" + owner + "/" + repo + path))
                 .setHeader("Accept", "application/vnd.github+json")
                 .setHeader("Authorization", "Bearer " + token)
                 .setHeader("X-GitHub-Api-Version", "2022-11-28")
-                .POST(HttpRequest.BodyPublishers.ofString(req.toString()))
-                .uri(URI.create("https://api.github.com/repos/" + owner + "/" + repo + "/issues"))
+                .method(method, HttpRequest.BodyPublishers.ofString(req.toString()))
                 .build();
+        }
+
+        /**
+         * Send a content-creating request to the repository with a token of the pool, pacing it through the
+         * scheduler and retrying it as long as it is rejected by a rate limit or its token is rejected.
+         */
+        private HttpResponse<JsonObject> send(final String login, final String method, final String path, final JsonObject req) throws IOException {
             try {
-                HttpResponse<JsonObject> response = client.send(request, ri -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), str -> Json.createReader(new StringReader(str)).readObject()));
-                JsonObject body = response.body();
-                if (response.statusCode() == 201) {
-                    return body.getInt("number");
-                } else {
-                    throw new IOException("Failed with status " + response.statusCode() + ": " + body.getString("message", "<no message>"));
+                for (int attempt = 0;; attempt++) {
+                    final String token = tokens.acquire(login);
+                    final HttpResponse<JsonObject> response;
+                    try {
+                        response = sendInstrumented(transport.client(), newRequest(token, method, path, req), attempt);
+                    } catch (IOException e) {
+                        tokens.failed(token);
+                        throw e;
+                    }
+                    final boolean rateLimited = scheduler.update(token, response);
+                    final boolean rejected = tokens.completed(token, response.statusCode());
+                    if (!rateLimited && !rejected || attempt == MAX_RATE_LIMIT_RETRIES) {
+                        return response;
+                    }
                 }
             } catch (InterruptedException e) {
                 throw new RuntimeException("Unexpectedly interrupted");
             }
         }
 
-        public void createComment(Issue issue, Comment comment, final Map<String, Integer> mappedIssueNumbers) throws IOException {
-            Integer issueNum = mappedIssueNumbers.get(issue.key());
-            if (issueNum == null) {
-                throw new IllegalArgumentException("Issue " + issue.key() + " was not mapped");
+        static HttpResponse<JsonObject> sendInstrumented(final HttpClient client, final HttpRequest request, final int attempt) throws IOException, InterruptedException {
+            final HttpRequestEvent event = new HttpRequestEvent();
+            event.begin();
+            HttpResponse<JsonObject> response = null;
+            try {
+                response = client.send(request, JSON_HANDLER);
+                return response;
+            } finally {
+                event.complete(HttpRequestEvent.GITHUB, request, response, attempt);
             }
-            CommentCreationFactory ccf = new CommentCreationFactory(jiraUrl, userMapping, mappedIssueNumbers);
-            JsonObject req = ccf.commentCreateRequest(issue, comment);
-            final String createdByJira = "<todo>";
-            final String token;
-            String createdBy = userMapping.get(createdByJira);
-            if (createdBy != null) {
-                token = tokens.getOrDefault(createdBy, defaultToken);
-            } else {
-                token = defaultToken;
-            }
-            final HttpRequest request = HttpRequest.newBuilder()
-                .setHeader("Accept", "application/vnd.github+json")
-                .setHeader("Authorization", "Bearer " + token)
-                .setHeader("X-GitHub-Api-Version", "2022-11-28")
-                .POST(HttpRequest.BodyPublishers.ofString(req.toString()))
-                .uri(URI.create("https://api.github.com/repos/" + owner + "/" + repo + "/issues/" + issueNum + "/comments"))
+        }
+
+        private static int issueNumber(final HttpResponse<JsonObject> response) throws IOException {
+            checkCreated(response);
+            return response.body().getInt("number");
+        }
+
+        private static void checkCreated(final HttpResponse<JsonObject> response) throws IOException {
+            if (response.statusCode() != 201) {
+                throw new IOException("Failed with status " + response.statusCode() + ": " + response.body().getString("message", "<no message>"));
+            }
+        }
+
+        private static JsonObject readObject(final byte[] bytes) {
+            // rate limit responses may come without a body
+            return bytes.length == 0 ? JsonValue.EMPTY_JSON_OBJECT : Json.createReader(new ByteArrayInputStream(bytes)).readObject();
+        }
+    }
+
+    /**
+     * GraphQL client for GitHub, an alternative to {@link Client} which batches many issue or comment creations into
+     * a single request of aliased mutations.
+     * <p>
+     * GitHub executes the mutations of a request one after another, but carries on with the others when one of them
+     * fails. So that the comments of an issue keep their order, a batch holds at most one comment of each issue, and
+     * the next comment of an issue is only sent once the batch with the previous one succeeded; comments are
+     * therefore batched across issues.
+     * <p>
+     * Batches are limited both in their number of mutations and in their size, to stay well within GitHub's GraphQL
+     * resource limits. Each mutation still counts against the content creation limits, and is paced accordingly.
+     * Mutations which succeeded are mapped and journaled even if others in the same batch failed.
+     * <p>
+     * A batch holds the writes of many authors, and must keep the comments of each issue in order, so batches are
+     * not attributed to their authors, and are always sent with the bot tokens of the {@link TokenPool}.
+     */
+    public static final class GraphQLClient {
+        /**
+         * The GitHub GraphQL endpoint.
+         */
+        public static final URI DEFAULT_ENDPOINT = URI.create("https://api.github.com/graphql");
+        /**
+         * The default maximum number of mutations per request.
+         */
+        public static final int DEFAULT_BATCH_SIZE = 25;
+
+        private static final int MAX_BATCH_CHARS = 1 << 20;
+        private static final int MAX_RATE_LIMIT_RETRIES = 5;
+
+        private final Transport transport;
+        private final URI endpoint;
+        private final URI jiraUrl;
+        private final String owner;
+        private final String repo;
+        private final Map<String, String> userMapping;
+        private final TokenPool tokens;
+        private final MarkdownConverter converter;
+        private final RateLimitScheduler scheduler;
+        private final MigrationJournal journal;
+        private final int batchSize;
+        private final ConcurrentHashMap<Integer, String> issueNodeIds = new ConcurrentHashMap<>();
+        private volatile String repositoryId;
+
+        /**
+         * Creates a new client.
+         *
+         * @param transport the HTTP transport
+         * @param endpoint  the GitHub GraphQL endpoint
+         * @param settings  the repository to create issues in, and how to render them
+         * @param tokens    the tokens whose bot tokens batches are sent with
+         * @param journal   the journal to record created issues and comments in, or {@code null} for none
+         * @param batchSize the maximum number of mutations per request
+         */
+        public GraphQLClient(final Transport transport, final URI endpoint, final Settings settings, final TokenPool tokens, final MigrationJournal journal, final int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive (" + batchSize + ")");
+            }
+            this.transport = transport;
+            this.endpoint = endpoint;
+            this.jiraUrl = fixJiraUri(settings.jiraUrl());
+            this.owner = settings.owner();
+            this.repo = settings.repo();
+            this.userMapping = settings.userMapping();
+            this.tokens = tokens;
+            this.converter = settings.converter();
+            this.scheduler = tokens.scheduler();
+            this.journal = journal;
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * {@return the maximum number of mutations per request}
+         */
+        public int batchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Create the issues, in batches, and add their numbers to the map.
+         *
+         * @param issues the issues
+         * @param mappedIssueNumbers the map of Jira issue keys to GitHub issue numbers to add to
+         * @throws IOException if there was an error, after the numbers of the issues created so far were added
+         */
+        public void createIssues(List<Issue> issues, final Map<String, Integer> mappedIssueNumbers) throws IOException {
+            IssueCreationFactory icf = new IssueCreationFactory(jiraUrl, userMapping, converter);
+            final Batch batch = new Batch();
+            for (Issue issue : issues) {
+                final int created = journal == null ? -1 : journal.issueNumber(issue.key());
+                if (created != -1) {
+                    mappedIssueNumbers.put(issue.key(), Integer.valueOf(created));
+                    continue;
+                }
+                final JsonObject req = icf.issueCreateRequest(issue);
+                final JsonObject input = Json.createObjectBuilder(req).add("repositoryId", repositoryId()).build();
+                batch.add("createIssue", "CreateIssueInput", input, "issue { id number }", payload -> {
+                    final JsonObject node = payload.getJsonObject("issue");
+                    final int number = node.getInt("number");
+                    issueNodeIds.put(Integer.valueOf(number), node.getString("id"));
+                    mappedIssueNumbers.put(issue.key(), Integer.valueOf(number));
+                    if (journal != null) {
+                        journal.recordIssue(issue.key(), number, contentHash(req));
+                    }
+                });
+            }
+            batch.flush();
+        }
+
+        /**
+         * Create all comments of the issues, in batches. The comments of each issue are created in order: the first
+         * round of batches holds the first pending comment of every issue, the next round the second one, and so on.
+         * A failed batch stops all further rounds, so the comments created of each issue are always the first ones.
+         *
+         * @param issues the issues, which must all be mapped
+         * @param mappedIssueNumbers the map of Jira issue keys to GitHub issue numbers
+         * @throws IOException if there was an error, after the comments created so far were journaled
+         */
+        public void createComments(List<Issue> issues, final Map<String, Integer> mappedIssueNumbers) throws IOException {
+            CommentCreationFactory ccf = new CommentCreationFactory(jiraUrl, userMapping, mappedIssueNumbers, converter);
+            final List<Integer> numbers = new ArrayList<>(issues.size());
+            final List<Integer> commented = new ArrayList<>(issues.size());
+            final List<List<Comment>> pending = new ArrayList<>(issues.size());
+            int rounds = 0;
+            for (Issue issue : issues) {
+                Integer issueNum = mappedIssueNumbers.get(issue.key());
+                if (issueNum == null) {
+                    throw new IllegalArgumentException("Issue " + issue.key() + " was not mapped");
+                }
+                numbers.add(issueNum);
+                final List<Comment> comments = new ArrayList<>(issue.comments().size());
+                for (Comment comment : issue.comments()) {
+                    if (journal == null || journal.commentId(issue.key(), comment.id()) == -1) {
+                        comments.add(comment);
+                    }
+                }
+                if (!comments.isEmpty()) {
+                    commented.add(issueNum);
+                }
+                pending.add(comments);
+                rounds = Math.max(rounds, comments.size());
+            }
+            resolveIssueNodeIds(commented);
+            final Batch batch = new Batch();
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < issues.size(); i++) {
+                    final List<Comment> comments = pending.get(i);
+                    if (round >= comments.size()) {
+                        continue;
+                    }
+                    final Issue issue = issues.get(i);
+                    final Comment comment = comments.get(round);
+                    final JsonObject req = ccf.commentCreateRequest(issue, comment);
+                    final JsonObject input = Json.createObjectBuilder(req).add("subjectId", issueNodeIds.get(numbers.get(i))).build();
+                    batch.add("addComment", "AddCommentInput", input, "commentEdge { node { databaseId } }", payload -> {
+                        if (journal != null) {
+                            final long id = payload.getJsonObject("commentEdge").getJsonObject("node").getJsonNumber("databaseId").longValue();
+                            journal.recordComment(issue.key(), comment.id(), id, contentHash(req));
+                        }
+                    });
+                }
+                // the next comment of an issue may only be sent once this one was created
+                batch.flush();
+            }
+        }
+
+        private String repositoryId() throws IOException {
+            String id = repositoryId;
+            if (id == null) {
+                final JsonObject data = query("query($owner: String!, $name: String!) { repository(owner: $owner, name: $name) { id } }");
+                repositoryId = id = data.getJsonObject("repository").getString("id");
+            }
+            return id;
+        }
+
+        /**
+         * Looks up the node ids of issues which were not created by this client, such as by an earlier run.
+         */
+        private void resolveIssueNodeIds(final List<Integer> numbers) throws IOException {
+            final StringBuilder fields = new StringBuilder();
+            for (Integer number : numbers) {
+                if (!issueNodeIds.containsKey(number)) {
+                    fields.append(" n").append(number).append(": issue(number: ").append(number).append(") { id }");
+                }
+            }
+            if (fields.isEmpty()) {
+                return;
+            }
+            final JsonObject repository = query("query($owner: String!, $name: String!) { repository(owner: $owner, name: $name) {" + fields + " } }").getJsonObject("repository");
+            for (Integer number : numbers) {
+                final JsonObject issue = repository.getJsonObject("n" + number);
+                if (issue != null) {
+                    issueNodeIds.put(number, issue.getString("id"));
+                } else if (!issueNodeIds.containsKey(number)) {
+                    throw new IOException("Issue #" + number + " was not found");
+                }
+            }
+        }
+
+        private JsonObject query(final String query) throws IOException {
+            final JsonObject req = Json.createObjectBuilder()
+                .add("query", query)
+                .add("variables", Json.createObjectBuilder().add("owner", owner).add("name", repo))
                 .build();
+            final JsonObject body = send(req, 0);
+            final JsonArray errors = body.getJsonArray("errors");
+            if (errors != null && !errors.isEmpty()) {
+                throw new IOException("Query failed: " + errorMessages(errors));
+            }
+            return body.getJsonObject("data");
+        }
+
+        /**
+         * Send a request to the endpoint with a bot token of the pool, pacing it as the given number of
+         * content-creating requests and retrying it as long as it is rejected by a rate limit or its token is
+         * rejected.
+         */
+        private JsonObject send(final JsonObject req, final int mutations) throws IOException {
             try {
-                HttpResponse<JsonObject> response = client.send(request, ri -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), str -> Json.createReader(new StringReader(str)).readObject()));
-                JsonObject body = response.body();
-                if (response.statusCode() == 201) {
+                for (int attempt = 0;; attempt++) {
+                    final String token = mutations == 0 ? tokens.select(null) : tokens.acquire(null);
+                    for (int i = 1; i < mutations; i++) {
+                        scheduler.acquire(token);
+                    }
+                    final HttpRequest request = transport.newRequest(endpoint)
+                        .setHeader("Accept", "application/json")
+                        .setHeader("Authorization", "Bearer " + token)
+                        .POST(HttpRequest.BodyPublishers.ofString(req.toString()))
+                        .build();
+                    final HttpResponse<JsonObject> response;
+                    try {
+                        response = Client.sendInstrumented(transport.client(), request, attempt);
+                    } catch (IOException e) {
+                        tokens.failed(token);
+                        throw e;
+                    }
+                    final boolean rateLimited = scheduler.update(token, response);
+                    final boolean rejected = tokens.completed(token, response.statusCode());
+                    if (!rateLimited && !rejected || attempt == MAX_RATE_LIMIT_RETRIES) {
+                        if (response.statusCode() != 200) {
+                            throw new IOException("Failed with status " + response.statusCode() + ": " + response.body().getString("message", "<no message>"));
+                        }
+                        return response.body();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Unexpectedly interrupted");
+            }
+        }
+
+        private static String errorMessages(final JsonArray errors) {
+            final StringBuilder b = new StringBuilder();
+            for (JsonValue error : errors) {
+                if (!b.isEmpty()) {
+                    b.append("; ");
+                }
+                b.append(error.asJsonObject().getString("message", "<no message>"));
+            }
+            return b.toString();
+        }
+
+        @FunctionalInterface
+        private interface Result {
+            void accept(JsonObject payload) throws IOException;
+        }
+
+        /**
+         * Accumulates mutations, sending them as one request whenever the batch is full.
+         */
+        private final class Batch {
+            private final StringBuilder declarations = new StringBuilder();
+            private final StringBuilder fields = new StringBuilder();
+            private final JsonObjectBuilder variables = Json.createObjectBuilder();
+            private final List<Result> results = new ArrayList<>();
+            private int chars;
+
+            void add(final String mutation, final String inputType, final JsonObject input, final String selection, final Result result) throws IOException {
+                final String text = input.toString();
+                if (!results.isEmpty() && chars + text.length() > MAX_BATCH_CHARS) {
+                    flush();
+                }
+                final String alias = "m" + results.size();
+                declarations.append(results.isEmpty() ? "" : ", ").append('$').append(alias).append(": ").append(inputType).append('!');
+                fields.append(' ').append(alias).append(": ").append(mutation).append("(input: $").append(alias).append(") { ").append(selection).append(" }");
+                variables.add(alias, input);
+                results.add(result);
+                chars += text.length();
+                if (results.size() == batchSize) {
+                    flush();
+                }
+            }
+
+            void flush() throws IOException {
+                if (results.isEmpty()) {
                     return;
-                } else {
-                    throw new IOException("Failed with status " + response.statusCode() + ": " + body.getString("message", "<no message>"));
                 }
+                final JsonObject req = Json.createObjectBuilder()
+                    .add("query", "mutation(" + declarations + ") {" + fields + " }")
+                    .add("variables", variables)
+                    .build();
+                final List<Result> sent = List.copyOf(results);
+                declarations.setLength(0);
+                fields.setLength(0);
+                results.clear();
+                chars = 0;
+                final JsonObject body = send(req, sent.size());
+                final JsonObject data = body.get("data") instanceof JsonObject o ? o : JsonValue.EMPTY_JSON_OBJECT;
+                for (int i = 0; i < sent.size(); i++) {
+                    if (data.get("m" + i) instanceof JsonObject payload) {
+                        sent.get(i).accept(payload);
+                    }
+                }
+                final JsonArray errors = body.getJsonArray("errors");
+                if (errors != null && !errors.isEmpty()) {
+                    throw new IOException("Batch failed: " + errorMessages(errors));
+                }
+                if (data.size() < sent.size()) {
+                    throw new IOException("Batch failed: " + (sent.size() - data.size()) + " mutation(s) without a result");
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up which GitHub logins exist, with batches of aliased {@code user} queries to the GraphQL API. A login
+     * which is not a valid GitHub login is known not to exist without asking.
+     */
+    public static final class LoginResolver {
+        /**
+         * The default maximum number of logins per request.
+         */
+        public static final int DEFAULT_BATCH_SIZE = 100;
+
+        private static final Pattern LOGIN = Pattern.compile("[A-Za-z0-9](?:-?[A-Za-z0-9])*");
+        private static final int MAX_LOGIN_LENGTH = 39;
+
+        private final Transport transport;
+        private final URI endpoint;
+        private final String token;
+        private final int batchSize;
+
+        public LoginResolver(final Transport transport, final URI endpoint, final String token) {
+            this(transport, endpoint, token, DEFAULT_BATCH_SIZE);
+        }
+
+        public LoginResolver(final Transport transport, final URI endpoint, final String token, final int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive (" + batchSize + ")");
+            }
+            this.transport = transport;
+            this.endpoint = endpoint;
+            this.token = token;
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Looks up the logins, passing each one to the consumer along with whether it exists.
+         *
+         * @param logins the logins
+         * @param consumer the consumer of the results
+         * @throws IOException if there was an error, after the results of the batches so far were passed on
+         */
+        public void resolve(final Collection<String> logins, final BiConsumer<String, Boolean> consumer) throws IOException {
+            final List<String> batch = new ArrayList<>(batchSize);
+            for (String login : logins) {
+                if (login.length() > MAX_LOGIN_LENGTH || !LOGIN.matcher(login).matches()) {
+                    consumer.accept(login, Boolean.FALSE);
+                    continue;
+                }
+                batch.add(login);
+                if (batch.size() == batchSize) {
+                    resolveBatch(batch, consumer);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                resolveBatch(batch, consumer);
+            }
+        }
+
+        private void resolveBatch(final List<String> logins, final BiConsumer<String, Boolean> consumer) throws IOException {
+            final StringBuilder query = new StringBuilder("query {");
+            for (int i = 0; i < logins.size(); i++) {
+                // valid logins need no escaping
+                query.append(" u").append(i).append(": user(login: \"").append(logins.get(i)).append("\") { login }");
+            }
+            query.append(" }");
+            final HttpRequest request = transport.newRequest(endpoint)
+                .setHeader("Accept", "application/json")
+                .setHeader("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(Json.createObjectBuilder().add("query", query.toString()).build().toString()))
+                .build();
+            final HttpResponse<JsonObject> response;
+            try {
+                response = Client.sendInstrumented(transport.client(), request, 0);
             } catch (InterruptedException e) {
                 throw new RuntimeException("Unexpectedly interrupted");
             }
+            if (response.statusCode() != 200 || !(response.body().get("data") instanceof JsonObject data)) {
+                throw new IOException("Login lookup failed with status " + response.statusCode() + ": " + response.body().getString("message", "<no message>"));
+            }
+            // a login which does not exist has a null result, and a NOT_FOUND error
+            final JsonArray errors = response.body().getJsonArray("errors");
+            if (errors != null) {
+                for (JsonValue error : errors) {
+                    if (!"NOT_FOUND".equals(error.asJsonObject().getString("type", null))) {
+                        throw new IOException("Login lookup failed: " + GraphQLClient.errorMessages(errors));
+                    }
+                }
+            }
+            for (int i = 0; i < logins.size(); i++) {
+                consumer.accept(logins.get(i), Boolean.valueOf(data.get("u" + i) instanceof JsonObject));
+            }
         }
     }
 
-    private static @NotNull String remapIssueKeys(final String originalBody, final Map<String, Integer> mappedIssueNumbers) {
-        StringBuilder newBody = new StringBuilder(originalBody.length());
-        Pattern pattern = Pattern.compile("(?:https?://[a-zA-Z0-9./]+)?([A-Z0-9]+-\\d+)(?:\\\\?\\S+)?");
-        Matcher matcher = pattern.matcher(originalBody);
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            Integer id = mappedIssueNumbers.get(key);
-            if (id != null) {
-                matcher.appendReplacement(newBody, "#" + id);
-            } else {
-                // didn't match, just leave it alone
-                matcher.appendReplacement(newBody, matcher.group(0));
-            }
-        }
-        matcher.appendTail(newBody);
-        return newBody.toString();
+    /**
+     * Hashes the title and body of an issue or comment request, so that content which was written before can be
+     * recognized without keeping it.
+     *
+     * @return the hash, which is never {@code 0}
+     */
+    private static long contentHash(final JsonObject req) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(req.getString("title", "").getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(req.getString("body", "").getBytes(StandardCharsets.UTF_8));
+        final long hash = ByteBuffer.wrap(digest.digest()).getLong();
+        return hash == 0 ? 1 : hash;
     }
 
     private static URI fixJiraUri(final URI jiraUrl) {
-        if (! jiraUrl.isAbsolute()) {
-            throw new IllegalArgumentException("JIRA URL has to be absolute (" + jiraUrl + ")");
+        return fixBaseUri(jiraUrl, "JIRA");
+    }
+
+    private static URI fixBaseUri(final URI baseUrl, final String what) {
+        if (! baseUrl.isAbsolute()) {
+            throw new IllegalArgumentException(what + " URL has to be absolute (" + baseUrl + ")");
         }
-        String origPath = Objects.requireNonNullElse(jiraUrl.getPath(), "");
+        String origPath = Objects.requireNonNullElse(baseUrl.getPath(), "");
         if (origPath.endsWith("/")) {
-            return jiraUrl;
+            return baseUrl;
         } else {
-            return jiraUrl.resolve(origPath + "/");
+            return baseUrl.resolve(origPath + "/");
         }
     }
 
@@ -0,0 +1,128 @@
+package io.github.dmlloyd.im;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event for an HTTP request to Jira or GitHub, from sending the request until the response headers arrived.
+ * <p>
+ * Create and {@linkplain #begin() begin} the event before sending the request, and {@linkplain #complete complete}
+ * it once the response or failure is known, on any thread.
+ */
+@Name("io.github.dmlloyd.im.HttpRequest")
+@Label("HTTP Request")
+@Category({ "Issue Migrator", "HTTP" })
+@Description("An HTTP request to Jira or GitHub")
+@StackTrace(false)
+public final class HttpRequestEvent extends Event {
+    /**
+     * The service name of Jira requests.
+     */
+    public static final String JIRA = "jira";
+    /**
+     * The service name of GitHub requests.
+     */
+    public static final String GITHUB = "github";
+
+    private static final Set<String> ID_PARENTS = Set.of("issue", "issues", "comments");
+
+    @Label("Service")
+    public String service;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Endpoint")
+    @Description("The request path, with issue numbers and keys replaced by placeholders")
+    public String endpoint;
+
+    @Label("Status")
+    @Description("The response status, or -1 if the request failed")
+    public int status;
+
+    @Label("Attempt")
+    @Description("The number of earlier attempts of the same request")
+    public int attempt;
+
+    @Label("Request Size")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Size")
+    @Description("The response content length, or -1 if unknown")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Rate Limit Remaining")
+    @Description("The remaining rate limit quota, or -1 if unknown")
+    public long rateLimitRemaining;
+
+    /**
+     * Completes and commits the event, if it is enabled.
+     *
+     * @param service  the service name
+     * @param request  the request
+     * @param response the response, or {@code null} if the request failed
+     * @param attempt  the number of earlier attempts of the same request
+     */
+    public void complete(final String service, final HttpRequest request, final HttpResponse<?> response, final int attempt) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.service = service;
+        this.method = request.method();
+        this.endpoint = endpoint(request.uri().getRawPath());
+        this.attempt = attempt;
+        this.requestBytes = request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L).longValue();
+        if (response == null) {
+            status = -1;
+            responseBytes = -1;
+            rateLimitRemaining = -1;
+        } else {
+            status = response.statusCode();
+            responseBytes = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            rateLimitRemaining = response.headers().firstValueAsLong("X-RateLimit-Remaining").orElse(-1);
+        }
+        commit();
+    }
+
+    /**
+     * Replaces the path segments which are issue or comment numbers or issue keys with placeholders, so that
+     * requests to the same endpoint can be grouped.
+     */
+    static String endpoint(final String path) {
+        final StringBuilder b = new StringBuilder(path.length());
+        String previous = "";
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = path.length();
+            }
+            final String segment = path.substring(start, end);
+            if (ID_PARENTS.contains(previous) && !segment.isEmpty() && segment.chars().allMatch(Character::isDigit)) {
+                b.append("{number}");
+            } else if (segment.matches("[A-Z][A-Z0-9]*-\\d+")) {
+                b.append("{key}");
+            } else {
+                b.append(segment);
+            }
+            if (end < path.length()) {
+                b.append('/');
+            }
+            previous = segment;
+            start = end + 1;
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.dmlloyd.im;
+
+import java.util.Map;
+
+/**
+ * Replaces references to Jira issues in Markdown text with references to the corresponding GitHub issues.
+ * <p>
+ * A reference is a Jira key such as {@code PROJECT-123}, optionally as the last path segment of an
+ * {@code http://} or {@code https://} URL, together with any non-whitespace text directly following it (such as the
+ * rest of a Markdown link). A reference to a mapped key is replaced with {@code #number}; anything else is copied
+ * verbatim. The text is scanned once, without regular expressions, and mapped keys are looked up without
+ * allocating when the mapping is an {@link IssueNumberMap}.
+ */
+public final class IssueKeyRemapper {
+    private IssueKeyRemapper() {}
+
+    /**
+     * Determines whether the text contains anything that looks like a Jira issue reference, whether or not it
+     * could be mapped.
+     *
+     * @param text the text to check
+     *
+     * @return {@code true} if the text contains an issue key, or {@code false} if remapping can never change it
+     */
+    public static boolean hasReferences(final String text) {
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isProjectChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int projectEnd = i + 1;
+            while (projectEnd < length && isProjectChar(text.charAt(projectEnd))) {
+                projectEnd++;
+            }
+            if (projectEnd + 1 < length && text.charAt(projectEnd) == '-' && isDigit(text.charAt(projectEnd + 1))) {
+                return true;
+            }
+            i = projectEnd;
+        }
+        return false;
+    }
+
+    /**
+     * Remaps the Jira issue references in the text.
+     *
+     * @param text    the text to remap
+     * @param numbers the map of Jira issue keys to GitHub issue numbers
+     *
+     * @return the remapped text (not {@code null})
+     */
+    public static String remap(final String text, final Map<String, Integer> numbers) {
+        final IssueNumberMap fast = numbers instanceof IssueNumberMap map ? map : null;
+        final int length = text.length();
+        StringBuilder out = null;
+        int copied = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = text.charAt(i);
+            int keyStart = -1;
+            if (c == 'h') {
+                keyStart = urlKeyStart(text, i);
+            }
+            if (keyStart == -1) {
+                if (!isProjectChar(c)) {
+                    i++;
+                    continue;
+                }
+                keyStart = i;
+            }
+            int projectEnd = keyStart;
+            while (projectEnd < length && isProjectChar(text.charAt(projectEnd))) {
+                projectEnd++;
+            }
+            int numberEnd = projectEnd + 1;
+            while (numberEnd < length && isDigit(text.charAt(numberEnd))) {
+                numberEnd++;
+            }
+            if (projectEnd == keyStart || projectEnd >= length || text.charAt(projectEnd) != '-' || numberEnd == projectEnd + 1) {
+                // not a key; no key can start anywhere else in this run either
+                i = Math.max(i + 1, projectEnd);
+                continue;
+            }
+            // the reference swallows any directly following non-whitespace
+            int end = numberEnd;
+            while (end < length && !isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            final int number = IssueNumberMap.parseNumber(text, projectEnd + 1, numberEnd);
+            final int mapped;
+            if (number < 0) {
+                mapped = -1;
+            } else if (fast != null) {
+                mapped = fast.lookup(text, keyStart, projectEnd, number);
+            } else {
+                final Integer boxed = numbers.get(text.substring(keyStart, numberEnd));
+                mapped = boxed == null ? -1 : boxed.intValue();
+            }
+            if (mapped >= 0) {
+                if (out == null) {
+                    out = new StringBuilder(length);
+                }
+                out.append(text, copied, i).append('#').append(mapped);
+                copied = end;
+            }
+            i = end;
+        }
+        if (out == null) {
+            return text;
+        }
+        return out.append(text, copied, length).toString();
+    }
+
+    /**
+     * Finds the start of a key at the end of a URL starting at the given position.
+     *
+     * @return the start of the last path segment of the URL, or {@code -1} if there is no URL at the position or
+     *      its last segment cannot be a project name
+     */
+    private static int urlKeyStart(final String text, final int start) {
+        int i;
+        if (text.startsWith("https://", start)) {
+            i = start + 8;
+        } else if (text.startsWith("http://", start)) {
+            i = start + 7;
+        } else {
+            return -1;
+        }
+        int segment = i;
+        final int length = text.length();
+        while (i < length) {
+            final char c = text.charAt(i);
+            if (c == '/') {
+                segment = i + 1;
+            } else if (!isUrlChar(c)) {
+                break;
+            }
+            i++;
+        }
+        if (segment == i) {
+            return -1;
+        }
+        for (int j = segment; j < i; j++) {
+            if (!isProjectChar(text.charAt(j))) {
+                return -1;
+            }
+        }
+        return segment;
+    }
+
+    private static boolean isProjectChar(final char c) {
+        return c >= 'A' && c <= 'Z' || isDigit(c);
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isUrlChar(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '.' || c == '/';
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+}
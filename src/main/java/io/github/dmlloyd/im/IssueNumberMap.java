@@ -0,0 +1,339 @@
+package io.github.dmlloyd.im;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A map from Jira issue keys to GitHub issue numbers which stores each {@code PROJECT-123} key as a primitive
+ * {@code long} (project index and issue number) in an open-addressing table, so that lookups box nothing and
+ * allocate nothing. {@link IssueKeyRemapper} uses it to look keys up directly from the text being remapped.
+ * <p>
+ * Instances are safe for concurrent use; lookups are lock-free unless they race with a modification. A removed
+ * entry leaves a tombstone behind, which is dropped once the table is rehashed. The entry set and its views iterate
+ * over a snapshot of the entries, and removing through them removes from this map.
+ */
+public final class IssueNumberMap extends AbstractMap<String, Integer> {
+    private static final long EMPTY = -1L;
+    private static final long TOMBSTONE = -2L;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile String[] projects = new String[0];
+    private volatile Table table = new Table(64);
+    private int size;
+    private int tombstones;
+
+    /**
+     * Creates a new, empty map.
+     */
+    public IssueNumberMap() {
+    }
+
+    /**
+     * Creates a new map containing the given mappings.
+     *
+     * @param mappings the initial mappings
+     */
+    public IssueNumberMap(final Map<String, Integer> mappings) {
+        putAll(mappings);
+    }
+
+    @Override
+    public Integer get(final Object key) {
+        if (!(key instanceof String str)) {
+            return null;
+        }
+        final int dash = str.lastIndexOf('-');
+        if (dash <= 0) {
+            return null;
+        }
+        final int number = parseNumber(str, dash + 1, str.length());
+        if (number < 0) {
+            return null;
+        }
+        final int result = lookup(str, 0, dash, number);
+        return result < 0 ? null : Integer.valueOf(result);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Looks up the issue number of a key given as a project name range of a string and an issue number.
+     *
+     * @param text         the text containing the project name
+     * @param projectStart the start of the project name
+     * @param projectEnd   the end of the project name (exclusive)
+     * @param number       the Jira issue number
+     *
+     * @return the GitHub issue number, or {@code -1} if the key is not mapped
+     */
+    public int lookup(final String text, final int projectStart, final int projectEnd, final int number) {
+        long stamp = lock.tryOptimisticRead();
+        int result = find(text, projectStart, projectEnd, number);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = find(text, projectStart, projectEnd, number);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Integer put(final String key, final Integer value) {
+        final int dash = key.lastIndexOf('-');
+        final int number = dash <= 0 ? -1 : parseNumber(key, dash + 1, key.length());
+        if (number < 0 || value == null || value.intValue() < 0) {
+            throw new IllegalArgumentException("Invalid issue mapping " + key + " -> " + value);
+        }
+        final String project = key.substring(0, dash);
+        final long stamp = lock.writeLock();
+        try {
+            int projectId = projectId(project, 0, project.length());
+            if (projectId < 0) {
+                final String[] oldProjects = projects;
+                final String[] newProjects = Arrays.copyOf(oldProjects, oldProjects.length + 1);
+                projectId = oldProjects.length;
+                newProjects[projectId] = project;
+                projects = newProjects;
+            }
+            final long packed = pack(projectId, number);
+            Table t = table;
+            int idx = t.indexOf(packed);
+            if (t.keys[idx] == packed) {
+                final int old = t.values[idx];
+                t.values[idx] = value.intValue();
+                return Integer.valueOf(old);
+            }
+            if ((size + tombstones + 1) * 2 > t.keys.length) {
+                // grow, unless dropping the tombstones makes enough room
+                t = t.rehash((size + 1) * 4 > t.keys.length ? t.keys.length << 1 : t.keys.length);
+                table = t;
+                tombstones = 0;
+                idx = t.indexOf(packed);
+            }
+            t.values[idx] = value.intValue();
+            t.keys[idx] = packed;
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Integer remove(final Object key) {
+        if (!(key instanceof String str)) {
+            return null;
+        }
+        final int dash = str.lastIndexOf('-');
+        final int number = dash <= 0 ? -1 : parseNumber(str, dash + 1, str.length());
+        if (number < 0) {
+            return null;
+        }
+        final long stamp = lock.writeLock();
+        try {
+            final int projectId = projectId(str, 0, dash);
+            if (projectId < 0) {
+                return null;
+            }
+            final long packed = pack(projectId, number);
+            final Table t = table;
+            final int idx = t.indexOf(packed);
+            if (t.keys[idx] != packed) {
+                return null;
+            }
+            // the probe sequences of other keys may pass this slot, so it cannot simply be emptied
+            t.keys[idx] = TOMBSTONE;
+            size--;
+            tombstones++;
+            return Integer.valueOf(t.values[idx]);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        final long stamp = lock.writeLock();
+        try {
+            table = new Table(64);
+            size = 0;
+            tombstones = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the entries of this map, which iterate over a snapshot of the entries. Removing an entry through the
+     * iterator removes it from this map.
+     *
+     * @return the entries
+     */
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Integer>> iterator() {
+                final Iterator<Entry<String, Integer>> snapshot = snapshot().iterator();
+                return new Iterator<>() {
+                    private Entry<String, Integer> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return snapshot.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Integer> next() {
+                        return last = snapshot.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        IssueNumberMap.this.remove(last.getKey());
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IssueNumberMap.this.size();
+            }
+        };
+    }
+
+    private List<Entry<String, Integer>> snapshot() {
+        final long stamp = lock.readLock();
+        try {
+            final List<Entry<String, Integer>> snapshot = new ArrayList<>(size);
+            final String[] projects = this.projects;
+            final Table t = table;
+            for (int i = 0; i < t.keys.length; i++) {
+                final long packed = t.keys[i];
+                if (packed >= 0) {
+                    snapshot.add(new SimpleImmutableEntry<>(projects[(int) (packed >>> 32)] + '-' + (int) packed, Integer.valueOf(t.values[i])));
+                }
+            }
+            return snapshot;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Parses a non-negative decimal {@code int} without allocating.
+     *
+     * @return the number, or {@code -1} if the range is empty, is not all digits, or overflows
+     */
+    static int parseNumber(final String text, final int start, final int end) {
+        if (start >= end || end - start > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    private int find(final String text, final int projectStart, final int projectEnd, final int number) {
+        final int projectId = projectId(text, projectStart, projectEnd);
+        if (projectId < 0) {
+            return -1;
+        }
+        final long packed = pack(projectId, number);
+        final Table t = table;
+        final int idx = t.indexOf(packed);
+        return t.keys[idx] == packed ? t.values[idx] : -1;
+    }
+
+    private int projectId(final String text, final int start, final int end) {
+        // there are only ever a handful of projects, so a linear scan beats hashing the range
+        final String[] projects = this.projects;
+        final int len = end - start;
+        for (int i = 0; i < projects.length; i++) {
+            final String project = projects[i];
+            if (project.length() == len && text.regionMatches(start, project, 0, len)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long pack(final int projectId, final int number) {
+        return ((long) projectId << 32) | (number & 0xFFFF_FFFFL);
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+
+        Table(final int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /**
+         * Returns the slot holding the key, or the empty slot where it belongs; tombstones are probed past. The
+         * table, tombstones included, is never more than half full, so the probe always terminates, even when
+         * racing with a writer.
+         */
+        int indexOf(final long key) {
+            final int mask = keys.length - 1;
+            final long h = key * 0x9E37_79B9_7F4A_7C15L;
+            int idx = (int) (h ^ h >>> 32) & mask;
+            for (int i = 0; i <= mask; i++) {
+                final long k = keys[idx];
+                if (k == key || k == EMPTY) {
+                    return idx;
+                }
+                idx = idx + 1 & mask;
+            }
+            return idx;
+        }
+
+        Table rehash(final int capacity) {
+            final Table grown = new Table(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] >= 0) {
+                    final int idx = grown.indexOf(keys[i]);
+                    grown.keys[idx] = keys[i];
+                    grown.values[idx] = values[i];
+                }
+            }
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.dmlloyd.im;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+/**
+ * A persisted cache of which GitHub logins exist.
+ * <p>
+ * A migration {@linkplain #resolve(Collection, GitHub.LoginResolver) resolves} every login it may attribute issues
+ * and comments to in bulk before it starts, so that no login is ever looked up while migrating. Entries expire after
+ * the time to live, so later runs only look up logins which are new or whose entry expired.
+ * Instances are safe for concurrent use.
+ */
+public final class LoginCache {
+    /**
+     * The default time to live of an entry.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofDays(7);
+
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final Duration ttl;
+
+    private LoginCache(final Map<String, Entry> entries, final Duration ttl) {
+        this.entries = new ConcurrentHashMap<>(entries);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param ttl the time to live of an entry
+     *
+     * @return the new cache
+     */
+    public static LoginCache empty(final Duration ttl) {
+        return new LoginCache(Map.of(), ttl);
+    }
+
+    /**
+     * Loads a cache from the file. If the file does not exist, an empty cache is returned.
+     *
+     * @param path the cache file
+     * @param ttl the time to live of an entry
+     *
+     * @return the cache
+     *
+     * @throws IOException if an error occurs reading the file
+     */
+    public static LoginCache load(final Path path, final Duration ttl) throws IOException {
+        if (Files.notExists(path)) {
+            return empty(ttl);
+        }
+        try (Jsonb jsonb = JsonbBuilder.create(); Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            final State state = jsonb.fromJson(reader, State.class);
+            return new LoginCache(state.logins(), ttl);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(String.format("Failed to read login cache %s", path), e);
+        }
+    }
+
+    /**
+     * Atomically replaces the file with the current state of this cache. Expired entries are dropped.
+     *
+     * @param path the cache file
+     *
+     * @throws IOException if an error occurs writing the file
+     */
+    public void save(final Path path) throws IOException {
+        final long now = System.currentTimeMillis();
+        final Map<String, Entry> fresh = new TreeMap<>();
+        entries.forEach((login, entry) -> {
+            if (entry.isFresh(now, ttl)) {
+                fresh.put(login, entry);
+            }
+        });
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Jsonb jsonb = JsonbBuilder.create(); Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            jsonb.toJson(new State(fresh), writer);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(String.format("Failed to write login cache %s", path), e);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Looks up every login which has no fresh entry, in bulk, and records whether it exists.
+     *
+     * @param logins the logins to resolve
+     * @param resolver the resolver to look up logins with
+     *
+     * @return the number of logins which were looked up
+     *
+     * @throws IOException if a lookup failed, in which case the logins looked up so far are recorded
+     */
+    public int resolve(final Collection<String> logins, final GitHub.LoginResolver resolver) throws IOException {
+        final long now = System.currentTimeMillis();
+        final List<String> missing = new ArrayList<>();
+        for (String login : logins) {
+            final Entry entry = entries.get(login);
+            if (entry == null || !entry.isFresh(now, ttl)) {
+                missing.add(login);
+            }
+        }
+        if (!missing.isEmpty()) {
+            resolver.resolve(missing, (login, exists) -> entries.put(login, new Entry(exists, System.currentTimeMillis())));
+        }
+        return missing.size();
+    }
+
+    /**
+     * {@return every login which is known to exist, as of a fresh entry}
+     */
+    public Set<String> existing() {
+        final long now = System.currentTimeMillis();
+        final Set<String> existing = new HashSet<>();
+        entries.forEach((login, entry) -> {
+            if (entry.exists() && entry.isFresh(now, ttl)) {
+                existing.add(login);
+            }
+        });
+        return existing;
+    }
+
+    public record State(Map<String, Entry> logins) {
+    }
+
+    /**
+     * A cache entry.
+     *
+     * @param exists whether the login exists
+     * @param checked when the login was looked up, in milliseconds since the epoch
+     */
+    public record Entry(boolean exists, long checked) {
+        boolean isFresh(final long now, final Duration ttl) {
+            return now - checked < ttl.toMillis();
+        }
+    }
+}
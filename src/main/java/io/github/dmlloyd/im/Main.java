@@ -1,14 +1,39 @@
 package io.github.dmlloyd.im;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import io.github.dmlloyd.im.jira.IssueCache;
 import io.github.dmlloyd.im.jira.JiraIssue;
 import io.github.dmlloyd.im.jira.JiraIssueFetcher;
+import io.github.dmlloyd.im.jira.JiraSnapshot;
+import io.github.dmlloyd.im.jira.JiraUser;
+import io.github.dmlloyd.im.jira.JiraUserRegistry;
+import io.github.dmlloyd.im.jira.Mappers;
+import io.github.dmlloyd.im.jira.SyncCheckpoint;
+import io.github.dmlloyd.im.jira.UserMapping;
 
 /**
  * The main entry.
@@ -23,6 +48,45 @@ public final class Main {
         String owner = null;
         String repo = null;
         boolean dryRun = false;
+        boolean sync = false;
+        int jiraConcurrency = JiraIssueFetcher.DEFAULT_CONCURRENCY;
+        int jiraPageSize = -1;
+        boolean jiraBulk = false;
+        Path checkpointFile = null;
+        Path jiraCacheDir = null;
+        Path journalFile = null;
+        Path snapshotFile = null;
+        Path saveSnapshotFile = null;
+        Path manifestFile = null;
+        Path stateDir = null;
+        URI graphqlUrl = null;
+        URI githubUrl = GitHub.Client.DEFAULT_API_URL;
+        int contentPerMinute = 80;
+        int contentPerHour = 500;
+        boolean simulate = false;
+        int simulatedIssues = 1000;
+        int simulatedComments = 3;
+        Duration simulatedLatency = Simulator.Settings.defaults().latency();
+        int simulatedRateLimit = Simulator.Settings.defaults().rateLimit();
+        double simulatedThrottleRate = 0;
+        double simulatedErrorRate = 0;
+        Duration progressInterval = Duration.ofSeconds(10);
+        HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+        Duration connectTimeout = Transport.DEFAULT_CONNECT_TIMEOUT;
+        Duration requestTimeout = Transport.DEFAULT_REQUEST_TIMEOUT;
+        int maxConnections = 0;
+        String githubToken = System.getenv("GITHUB_TOKEN");
+        final List<String> botTokens = new ArrayList<>();
+        Path userTokensFile = null;
+        Path userMappingFile = null;
+        boolean verifyUsers = false;
+        Path loginCacheFile = null;
+        Duration loginCacheTtl = LoginCache.DEFAULT_TTL;
+        List<JiraUser> knownUsers = List.of();
+        int queueSize = Migration.Settings.DEFAULT_QUEUE_SIZE;
+        int convertWorkers = Runtime.getRuntime().availableProcessors();
+        int issueWorkers = Migration.Settings.DEFAULT_ISSUE_WORKERS;
+        int commentWorkers = Migration.Settings.DEFAULT_COMMENT_WORKERS;
         while (iterator.hasNext()) {
             String arg = iterator.next();
             switch (arg) {
@@ -32,15 +96,142 @@ public final class Main {
                                --help          this message
                                --jira-url      the base URL of the JIRA service
                                --jira-project  the Jira project id
+                               --jira-concurrency
+                                               the maximum number of concurrent Jira issue requests
+                               --jira-page-size
+                                               the number of results per Jira search request
+                               --jira-bulk     read whole issues from Jira search results
+                               --jira-cache    the directory to cache Jira issue JSON in between runs
+                               --checkpoint    the file recording the issues migrated by previous runs;
+                                               only issues updated since are fetched
+                               --journal       the file recording every issue and comment created on GitHub;
+                                               a rerun resumes from there instead of creating duplicates
+                               --snapshot      migrate the issues of a snapshot file instead of fetching them
+                               --save-snapshot fetch the issues into a snapshot file, and exit
+                               --manifest      migrate every Jira project of a manifest file to its GitHub repository,
+                                               concurrently; each line holds a project id and its owner/repo
+                               --state-dir     the directory of the checkpoint and journal of each manifest project
                                --input         the input file name or remote URL
                                --dry-run       to not actually commit anything
+                               --sync          also update the issues and comments created by an earlier run whose
+                                               rendered content changed since (needs --journal or --state-dir)
                                --repo          the GitHub owner/repo
+                               --github-token  the GitHub token (default: $GITHUB_TOKEN)
+                               --bot-tokens    further comma-separated GitHub tokens, which writes that cannot be
+                                               attributed to a user are spread across along with --github-token
+                               --user-tokens   a properties file of GitHub user tokens by login, which the writes
+                                               of those users are sent with
+                               --user-mapping  a properties file of GitHub logins by Jira user name (default: the
+                                               user-mapping.properties resource); unmapped users keep their name
+                               --verify-users  look up the mapped logins, and those of the users of the issues, before
+                                               migrating; issues and comments of users whose login is not known
+                                               to exist are not attributed to anyone. Without a snapshot, the
+                                               users are collected with a search of the project(s) first
+                               --login-cache   the file caching which logins exist (implies --verify-users)
+                               --login-cache-ttl
+                                               how long a cached login is trusted, in hours (default: 168)
+                               --github-url    the base URL of the GitHub REST API
+                               --content-limits
+                                               the content creation limits per token, as per-minute/per-hour
+                                               (default: 80/500)
+                               --github-graphql
+                                               create issues and comments in batches with the GraphQL API
+                               --github-graphql-url
+                                               the GraphQL endpoint (implies --github-graphql)
+                               --http-version  the preferred HTTP version, 1.1 or 2 (default: 2)
+                               --connect-timeout
+                                               the HTTP connect timeout, in seconds
+                               --request-timeout
+                                               the HTTP request timeout, in seconds
+                               --max-connections
+                                               the size of the HTTP/1.1 connection pool; a hint which
+                                               limits idle connections kept, not connections in use,
+                                               and which jdk.httpclient.connectionPoolSize overrides
+                               --progress      the interval between progress lines, in seconds, or 0 for none
+                               --queue-size    the number of issues queued between migration stages
+                               --convert-workers
+                                               the number of threads converting issues to Markdown
+                               --issue-workers the number of threads creating GitHub issues
+                               --comment-workers
+                                               the number of threads creating GitHub comments
+                               --simulate      migrate between an embedded Jira and GitHub simulator and report
+                                               the throughput; replays the --snapshot if given
+                               --simulate-issues
+                                               the number of generated issues (default: 1000)
+                               --simulate-comments
+                                               the average number of comments per generated issue (default: 3)
+                               --simulate-latency
+                                               the simulated response latency, in milliseconds
+                               --simulate-rate-limit
+                                               the simulated GitHub requests per token and hour
+                               --simulate-throttle-rate
+                                               the fraction of GitHub requests hitting a secondary rate limit
+                               --simulate-error-rate
+                                               the fraction of requests failing with a server error
                             """);
                 }
                 case "--jira-url" -> jiraUrl = new URI(iterator.next());
                 case "--jira-project" -> jiraProjectId = iterator.next();
+                case "--jira-concurrency" -> jiraConcurrency = Integer.parseInt(iterator.next());
+                case "--jira-page-size" -> jiraPageSize = Integer.parseInt(iterator.next());
+                case "--jira-bulk" -> jiraBulk = true;
+                case "--jira-cache" -> jiraCacheDir = Path.of(iterator.next());
+                case "--checkpoint" -> checkpointFile = Path.of(iterator.next());
+                case "--journal" -> journalFile = Path.of(iterator.next());
+                case "--snapshot" -> snapshotFile = Path.of(iterator.next());
+                case "--save-snapshot" -> saveSnapshotFile = Path.of(iterator.next());
+                case "--manifest" -> manifestFile = Path.of(iterator.next());
+                case "--state-dir" -> stateDir = Path.of(iterator.next());
                 case "--input" -> input = new URI(iterator.next());
                 case "--dry-run" -> dryRun = true;
+                case "--sync" -> sync = true;
+                case "--github-token" -> githubToken = iterator.next();
+                case "--bot-tokens" -> {
+                    for (String token : iterator.next().split(",")) {
+                        if (!token.isBlank()) {
+                            botTokens.add(token.strip());
+                        }
+                    }
+                }
+                case "--user-tokens" -> userTokensFile = Path.of(iterator.next());
+                case "--user-mapping" -> userMappingFile = Path.of(iterator.next());
+                case "--verify-users" -> verifyUsers = true;
+                case "--login-cache" -> {
+                    loginCacheFile = Path.of(iterator.next());
+                    verifyUsers = true;
+                }
+                case "--login-cache-ttl" -> loginCacheTtl = Duration.ofHours(Long.parseLong(iterator.next()));
+                case "--github-graphql" -> graphqlUrl = GitHub.GraphQLClient.DEFAULT_ENDPOINT;
+                case "--github-graphql-url" -> graphqlUrl = new URI(iterator.next());
+                case "--github-url" -> githubUrl = new URI(iterator.next());
+                case "--content-limits" -> {
+                    final String[] limits = iterator.next().split("/");
+                    if (limits.length != 2) {
+                        throw new IllegalArgumentException("Invalid syntax for --content-limits (expected `per-minute/per-hour`)");
+                    }
+                    contentPerMinute = Integer.parseInt(limits[0]);
+                    contentPerHour = Integer.parseInt(limits[1]);
+                }
+                case "--simulate" -> simulate = true;
+                case "--simulate-issues" -> simulatedIssues = Integer.parseInt(iterator.next());
+                case "--simulate-comments" -> simulatedComments = Integer.parseInt(iterator.next());
+                case "--simulate-latency" -> simulatedLatency = Duration.ofMillis(Long.parseLong(iterator.next()));
+                case "--simulate-rate-limit" -> simulatedRateLimit = Integer.parseInt(iterator.next());
+                case "--simulate-throttle-rate" -> simulatedThrottleRate = Double.parseDouble(iterator.next());
+                case "--simulate-error-rate" -> simulatedErrorRate = Double.parseDouble(iterator.next());
+                case "--http-version" -> httpVersion = switch (iterator.next()) {
+                    case "1.1" -> HttpClient.Version.HTTP_1_1;
+                    case "2" -> HttpClient.Version.HTTP_2;
+                    default -> throw new IllegalArgumentException("Invalid HTTP version (expected `1.1` or `2`)");
+                };
+                case "--connect-timeout" -> connectTimeout = Duration.ofSeconds(Long.parseLong(iterator.next()));
+                case "--request-timeout" -> requestTimeout = Duration.ofSeconds(Long.parseLong(iterator.next()));
+                case "--max-connections" -> maxConnections = Integer.parseInt(iterator.next());
+                case "--progress" -> progressInterval = Duration.ofSeconds(Long.parseLong(iterator.next()));
+                case "--queue-size" -> queueSize = Integer.parseInt(iterator.next());
+                case "--convert-workers" -> convertWorkers = Integer.parseInt(iterator.next());
+                case "--issue-workers" -> issueWorkers = Integer.parseInt(iterator.next());
+                case "--comment-workers" -> commentWorkers = Integer.parseInt(iterator.next());
                 case "--repo" -> {
                     String orgRepo = iterator.next();
                     Pattern pattern = Pattern.compile("([a-zA-Z0-9-_.]+)/([a-zA-Z0-9-_.]+)");
@@ -55,31 +246,313 @@ public final class Main {
                 default -> throw new IllegalArgumentException("Unexpected argument: " + arg);
             }
         }
-        if (jiraUrl == null) {
-            throw new IllegalArgumentException("No JIRA URL given");
+        if (progressInterval.isNegative()) {
+            throw new IllegalArgumentException("Progress interval must not be negative (" + progressInterval.toSeconds() + ")");
+        }
+        if (maxConnections < 0) {
+            throw new IllegalArgumentException("Maximum connections must not be negative (" + maxConnections + ")");
+        }
+        // the pool size is a JDK-wide hint which is read when the first HTTP client is created, so set it before any is
+        if (maxConnections > 0 && System.getProperty("jdk.httpclient.connectionPoolSize") == null) {
+            System.setProperty("jdk.httpclient.connectionPoolSize", Integer.toString(maxConnections));
+        }
+        Simulator simulator = null;
+        if (simulate) {
+            final Simulator.Settings simulatorSettings = new Simulator.Settings(simulatedLatency, simulatedLatency, simulatedRateLimit, Duration.ofHours(1), simulatedThrottleRate, simulatedErrorRate);
+            if (jiraProjectId == null) {
+                jiraProjectId = "SIM";
+            }
+            if (snapshotFile != null) {
+                // replay the snapshot through the simulated Jira
+                final JiraSnapshot snapshot = JiraSnapshot.open(snapshotFile);
+                simulator = Simulator.start(snapshot, simulatorSettings);
+                knownUsers = snapshot.users();
+                snapshotFile = null;
+            } else {
+                simulator = Simulator.start(Simulator.generate(jiraProjectId, simulatedIssues, simulatedComments, 1), simulatorSettings);
+            }
+            jiraUrl = simulator.jiraUrl();
+            githubUrl = simulator.githubUrl();
+            if (graphqlUrl != null) {
+                graphqlUrl = simulator.graphqlUrl();
+            }
+            input = jiraUrl;
+            if (owner == null) {
+                owner = "simulated";
+                repo = "simulated";
+            }
+            if (githubToken == null) {
+                githubToken = "simulated";
+            }
+        }
+        try {
+            if (jiraUrl == null) {
+                throw new IllegalArgumentException("No JIRA URL given");
+            }
+            if (jiraPageSize == -1) {
+                jiraPageSize = jiraBulk ? JiraIssueFetcher.DEFAULT_BULK_PAGE_SIZE : JiraIssueFetcher.DEFAULT_PAGE_SIZE;
+            }
+            if (githubToken != null) {
+                botTokens.add(0, githubToken);
+            }
+            final Map<String, String> userTokens = userTokensFile == null ? Map.of() : readTokens(userTokensFile);
+            final JiraUserRegistry registry;
+            if (userMappingFile == null && !verifyUsers) {
+                registry = JiraUserRegistry.shared();
+            } else {
+                UserMapping mapping = userMappingFile == null ? Mappers.jiraUserMapper() : UserMapping.load(userMappingFile);
+                if (verifyUsers) {
+                    if (botTokens.isEmpty()) {
+                        throw new IllegalArgumentException("No GitHub token given to verify the users with");
+                    }
+                    if (snapshotFile != null) {
+                        knownUsers = JiraSnapshot.open(snapshotFile).users();
+                    }
+                    final URI loginUrl = graphqlUrl != null ? graphqlUrl : githubUrl.equals(GitHub.Client.DEFAULT_API_URL) ? GitHub.GraphQLClient.DEFAULT_ENDPOINT : githubUrl.resolve("graphql");
+                    final LoginCache cache = loginCacheFile == null ? LoginCache.empty(loginCacheTtl) : LoginCache.load(loginCacheFile, loginCacheTtl);
+                    try (Transport transport = new Transport(httpVersion, connectTimeout, requestTimeout)) {
+                        if (knownUsers.isEmpty()) {
+                            // without a snapshot, the users are only known once their issues are searched for
+                            final List<String> projectIds = manifestFile != null ? readManifest(manifestFile).stream().map(ManifestEntry::jiraProjectId).toList() : jiraProjectId != null ? List.of(jiraProjectId) : List.of();
+                            if (projectIds.isEmpty()) {
+                                throw new IllegalArgumentException("No JIRA project id given to collect the users to verify from");
+                            }
+                            knownUsers = collectUsers(transport, jiraUrl, projectIds, jiraPageSize, jiraConcurrency);
+                        }
+                        mapping = verify(mapping, knownUsers, cache, loginCacheFile, new GitHub.LoginResolver(transport, loginUrl, botTokens.get(0)));
+                    }
+                }
+                registry = new JiraUserRegistry(mapping);
+            }
+            if (manifestFile != null) {
+                if (snapshotFile != null || saveSnapshotFile != null || checkpointFile != null || journalFile != null) {
+                    throw new IllegalArgumentException("Snapshots, --checkpoint and --journal are per project, and cannot be used with --manifest (use --state-dir)");
+                }
+                if (botTokens.isEmpty() && !dryRun) {
+                    throw new IllegalArgumentException("No GitHub token given");
+                }
+                if (sync && stateDir == null && !dryRun) {
+                    throw new IllegalArgumentException("Syncing needs the journals of the projects (use --state-dir)");
+                }
+                final List<ManifestEntry> entries = readManifest(manifestFile);
+                final Migration.Settings settings = new Migration.Settings(queueSize, convertWorkers, issueWorkers, commentWorkers, dryRun, sync && !dryRun);
+                final JiraIssueFetcher.Settings jiraSettings = new JiraIssueFetcher.Settings(jiraPageSize, jiraConcurrency, jiraBulk, jiraCacheDir == null ? null : new IssueCache(jiraCacheDir));
+                final Metrics metrics = new Metrics();
+                // every project takes turns for the Jira requests and for the slots of each GitHub token
+                final FairScheduler jiraRequests = new FairScheduler(jiraConcurrency);
+                final TokenPool tokens = new TokenPool(userTokens, botTokens, new RateLimitScheduler(contentPerMinute, contentPerHour));
+                if (stateDir != null && !dryRun) {
+                    Files.createDirectories(stateDir);
+                }
+                final Map<ManifestEntry, Future<Integer>> results = new LinkedHashMap<>();
+                final List<AutoCloseable> resources = new ArrayList<>();
+                final Metrics.Reporter reporter = metrics.startReporter(progressInterval, System.out);
+                try (Transport transport = new Transport(httpVersion, connectTimeout, requestTimeout); ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (ManifestEntry entry : entries) {
+                        final Path entryCheckpointFile = stateDir == null || dryRun ? null : stateDir.resolve(entry.jiraProjectId() + ".checkpoint");
+                        final SyncCheckpoint checkpoint = entryCheckpointFile == null || !Files.exists(entryCheckpointFile) ? SyncCheckpoint.empty() : SyncCheckpoint.load(entryCheckpointFile);
+                        final MigrationJournal journal = stateDir == null || dryRun ? null : MigrationJournal.open(stateDir.resolve(entry.jiraProjectId() + ".journal"));
+                        if (journal != null) {
+                            resources.add(journal);
+                        }
+                        final TokenPool lane = tokens.lane(entry.jiraProjectId());
+                        // issues are converted by the migration's own stage
+                        final GitHub.Settings github = new GitHub.Settings(jiraUrl, entry.owner(), entry.repo());
+                        final GitHub.Client client = new GitHub.Client(transport, githubUrl, github, lane, journal);
+                        final GitHub.GraphQLClient graphql = graphqlUrl == null ? null : new GitHub.GraphQLClient(transport, graphqlUrl, github, lane, journal, GitHub.GraphQLClient.DEFAULT_BATCH_SIZE);
+                        final Migration migration = new Migration(jiraUrl, client, graphql, MarkdownConverter.shared(), checkpoint, journal, registry, settings, metrics);
+                        final JiraIssueFetcher fetcher = new JiraIssueFetcher(entry.jiraProjectId(), jiraUrl.toASCIIString(), jiraSettings, checkpoint, metrics, transport, jiraRequests.lane(entry.jiraProjectId()));
+                        resources.add(fetcher);
+                        final Flow.Publisher<JiraIssue> issues = fetcher.publish(queueSize);
+                        results.put(entry, executor.submit(() -> {
+                            try {
+                                return Integer.valueOf(migration.run(issues));
+                            } finally {
+                                // keep the progress of a failed project, so that the next run resumes from there
+                                if (entryCheckpointFile != null) {
+                                    checkpoint.save(entryCheckpointFile);
+                                }
+                            }
+                        }));
+                    }
+                } finally {
+                    reporter.close();
+                    for (AutoCloseable resource : resources) {
+                        resource.close();
+                    }
+                    System.out.println(metrics.summary());
+                }
+                int failed = 0;
+                for (Map.Entry<ManifestEntry, Future<Integer>> result : results.entrySet()) {
+                    final ManifestEntry entry = result.getKey();
+                    try {
+                        System.out.printf("%s -> %s/%s: migrated %d issues%n", entry.jiraProjectId(), entry.owner(), entry.repo(), result.getValue().get());
+                    } catch (ExecutionException e) {
+                        failed++;
+                        System.out.printf("%s -> %s/%s: failed: %s%n", entry.jiraProjectId(), entry.owner(), entry.repo(), e.getCause());
+                    }
+                }
+                if (failed > 0) {
+                    throw new IllegalStateException(failed + " of " + entries.size() + " projects failed to migrate");
+                }
+                return;
+            }
+            if (jiraProjectId == null) {
+                throw new IllegalArgumentException("No JIRA project id given");
+            }
+            if (saveSnapshotFile != null) {
+                // a snapshot always holds every issue, regardless of any checkpoint
+                final JiraIssueFetcher.Settings jiraSettings = new JiraIssueFetcher.Settings(jiraPageSize, jiraConcurrency, jiraBulk, jiraCacheDir == null ? null : new IssueCache(jiraCacheDir));
+                try (Transport transport = new Transport(httpVersion, connectTimeout, requestTimeout); JiraIssueFetcher fetcher = new JiraIssueFetcher(jiraProjectId, jiraUrl.toASCIIString(), jiraSettings, SyncCheckpoint.empty(), new Metrics(), transport, null)) {
+                    final int count = fetcher.snapshot(saveSnapshotFile).join().intValue();
+                    System.out.printf("Saved %d issues of JIRA project %s to %s%n", Integer.valueOf(count), jiraProjectId, saveSnapshotFile);
+                }
+                return;
+            }
+            if (input == null) {
+                throw new IllegalArgumentException("No input file or URL given");
+            }
+            if (owner == null || repo == null) {
+                throw new IllegalArgumentException("No GitHub owner/repo given");
+            }
+            final SyncCheckpoint checkpoint = checkpointFile == null ? SyncCheckpoint.empty() : SyncCheckpoint.load(checkpointFile);
+            final JiraIssueFetcher.Settings jiraSettings = new JiraIssueFetcher.Settings(jiraPageSize, jiraConcurrency, jiraBulk, jiraCacheDir == null ? null : new IssueCache(jiraCacheDir));
+            if (botTokens.isEmpty() && !dryRun) {
+                throw new IllegalArgumentException("No GitHub token given");
+            }
+            if (sync && journalFile == null && !dryRun) {
+                throw new IllegalArgumentException("Syncing needs the journal of the earlier run (use --journal)");
+            }
+            final Migration.Settings settings = new Migration.Settings(queueSize, convertWorkers, issueWorkers, commentWorkers, dryRun, sync && !dryRun);
+            final Metrics metrics = new Metrics();
+            final int migrated;
+            final Metrics.Reporter reporter = metrics.startReporter(progressInterval, System.out);
+            try (Transport transport = new Transport(httpVersion, connectTimeout, requestTimeout); MigrationJournal journal = journalFile == null || dryRun ? null : MigrationJournal.open(journalFile)) {
+                final TokenPool tokens = new TokenPool(userTokens, botTokens, new RateLimitScheduler(contentPerMinute, contentPerHour));
+                // issues are converted by the migration's own stage
+                final GitHub.Settings github = new GitHub.Settings(jiraUrl, owner, repo);
+                final GitHub.Client client = new GitHub.Client(transport, githubUrl, github, tokens, journal);
+                final GitHub.GraphQLClient graphql = graphqlUrl == null ? null : new GitHub.GraphQLClient(transport, graphqlUrl, github, tokens, journal, GitHub.GraphQLClient.DEFAULT_BATCH_SIZE);
+                final Migration migration = new Migration(jiraUrl, client, graphql, MarkdownConverter.shared(), checkpoint, journal, registry, settings, metrics);
+                try {
+                    if (snapshotFile != null) {
+                        final JiraSnapshot snapshot = JiraSnapshot.open(snapshotFile);
+                        metrics.expect(snapshot.size());
+                        migrated = migration.run(snapshot, handle -> {
+                            if (checkpoint.isCurrent(handle.key(), handle.updated())) {
+                                metrics.expect(-1);
+                                return false;
+                            }
+                            return true;
+                        });
+                    } else {
+                        try (JiraIssueFetcher fetcher = new JiraIssueFetcher(jiraProjectId, jiraUrl.toASCIIString(), jiraSettings, checkpoint, metrics, transport, null)) {
+                            migrated = migration.run(fetcher.publish(queueSize));
+                        }
+                    }
+                } finally {
+                    // keep the progress of a failed run, so that the next run resumes from there
+                    if (checkpointFile != null && !dryRun) {
+                        checkpoint.save(checkpointFile);
+                    }
+                    System.out.println(metrics.summary());
+                    if (settings.sync()) {
+                        System.out.printf("Updated %d changed issues and comments%n", Integer.valueOf(migration.updated()));
+                        if (migration.orphaned() > 0) {
+                            System.out.printf("Left %d comments whose Jira comment no longer exists%n", Integer.valueOf(migration.orphaned()));
+                        }
+                    }
+                }
+            } finally {
+                reporter.close();
+            }
+            if (migrated == 0) {
+                System.out.printf("No issues found for JIRA project: %s/browse/%s%n", jiraUrl, jiraProjectId);
+            }
+        } finally {
+            if (simulator != null) {
+                System.out.println(simulator.report());
+                simulator.close();
+            }
+        }
+    }
+
+    /**
+     * Collects the users of the issues of the Jira projects, with a search for their user fields.
+     */
+    private static List<JiraUser> collectUsers(final Transport transport, final URI jiraUrl, final List<String> projectIds, final int pageSize, final int concurrency) throws Exception {
+        final Set<JiraUser> users = new LinkedHashSet<>();
+        for (String projectId : projectIds) {
+            try (JiraIssueFetcher fetcher = new JiraIssueFetcher(projectId, jiraUrl.toASCIIString(), new JiraIssueFetcher.Settings(pageSize, concurrency, false, null), SyncCheckpoint.empty(), new Metrics(), transport, null)) {
+                users.addAll(fetcher.users().join());
+            }
         }
-        if (jiraProjectId == null) {
-            throw new IllegalArgumentException("No JIRA project id given");
+        System.out.printf("Collected %d Jira users to verify%n", Integer.valueOf(users.size()));
+        return List.copyOf(users);
+    }
+
+    /**
+     * Looks up every login of the mapping and of the known users which the cache has no fresh entry for, saving the
+     * cache afterwards, and returns the mapping verified against every login known to exist.
+     */
+    private static UserMapping verify(final UserMapping mapping, final List<JiraUser> users, final LoginCache cache, final Path cacheFile, final GitHub.LoginResolver resolver) throws IOException {
+        final Set<String> logins = mapping.logins(users);
+        try {
+            final int resolved = cache.resolve(logins, resolver);
+            System.out.printf("Looked up %d of %d GitHub logins%n", Integer.valueOf(resolved), Integer.valueOf(logins.size()));
+        } finally {
+            if (cacheFile != null) {
+                cache.save(cacheFile);
+            }
         }
-        if (input == null) {
-            throw new IllegalArgumentException("No input file or URL given");
+        return mapping.verified(cache.existing());
+    }
+
+    /**
+     * Reads a properties file of GitHub tokens by login.
+     */
+    private static Map<String, String> readTokens(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
         }
-        if (owner == null || repo == null) {
-            throw new IllegalArgumentException("No GitHub owner/repo given");
+        final Map<String, String> tokens = new HashMap<>();
+        for (String login : properties.stringPropertyNames()) {
+            tokens.put(login, properties.getProperty(login).strip());
         }
-        final Set<JiraIssue> jiraIssues;
-        if (!dryRun) {
-            try (JiraIssueFetcher fetcher = new JiraIssueFetcher(jiraProjectId, jiraUrl.toASCIIString())) {
-                jiraIssues = fetcher.fetch().get();
+        return tokens;
+    }
+
+    /**
+     * Reads a manifest file, which holds one Jira project id and its GitHub owner/repo per line. Empty lines and
+     * lines starting with {@code #} are ignored.
+     */
+    private static List<ManifestEntry> readManifest(final Path file) throws IOException {
+        final Pattern pattern = Pattern.compile("(\\S+)\\s+([a-zA-Z0-9-_.]+)/([a-zA-Z0-9-_.]+)");
+        final List<ManifestEntry> entries = new ArrayList<>();
+        final Set<String> projects = new HashSet<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
             }
-        } else {
-            jiraIssues = Set.of();
+            final Matcher matcher = pattern.matcher(line);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(String.format("Invalid manifest line %d of %s (expected `project owner/repo`)", Integer.valueOf(lineNumber), file));
+            }
+            if (!projects.add(matcher.group(1))) {
+                throw new IllegalArgumentException(String.format("Duplicate project %s in manifest line %d of %s", matcher.group(1), Integer.valueOf(lineNumber), file));
+            }
+            entries.add(new ManifestEntry(matcher.group(1), matcher.group(2), matcher.group(3)));
         }
-        if (jiraIssues.isEmpty()) {
-            System.out.printf("No issues found for JIRA project: %s/browse/%s%n", jiraUrl, jiraProjectId);
-            System.exit(0);
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("No projects in manifest " + file);
         }
-        // todo: actually do it...
+        return entries;
+    }
 
+    private record ManifestEntry(String jiraProjectId, String owner, String repo) {
     }
 }
@@ -0,0 +1,144 @@
+package io.github.dmlloyd.im;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
+
+/**
+ * Converts the HTML of Jira descriptions and comments to Markdown.
+ * <p>
+ * Converter instances are expensive to build, so they are pooled and reused rather than built per conversion.
+ * Results are cached by a digest of the HTML, because boilerplate comments repeat heavily across issues; only short
+ * inputs are cached, and once the cache is full, the least recently used result is evicted.
+ * <p>
+ * Conversion can be run ahead of posting as its own stage by calling {@link #convert(Issue)} there, in which case the
+ * request factories should be given the {@linkplain #identity() identity converter}.
+ * Instances are safe for concurrent use.
+ */
+public final class MarkdownConverter {
+    private static final MarkdownConverter SHARED = new MarkdownConverter(4096, 4096);
+    private static final MarkdownConverter IDENTITY = new MarkdownConverter(0, 0);
+
+    private final ConcurrentLinkedQueue<FlexmarkHtmlConverter> pool = new ConcurrentLinkedQueue<>();
+    // access ordered; guarded by itself
+    private final LinkedHashMap<ByteBuffer, String> cache;
+    private final int maxCachedLength;
+
+    /**
+     * Creates a new converter.
+     *
+     * @param maxCacheEntries the maximum number of cached results
+     * @param maxCachedLength the maximum length of HTML whose result is cached
+     */
+    public MarkdownConverter(final int maxCacheEntries, final int maxCachedLength) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ByteBuffer, String> eldest) {
+                return size() > maxCacheEntries;
+            }
+        };
+        this.maxCachedLength = maxCachedLength;
+    }
+
+    /**
+     * Returns the converter shared by request factories which are not given one.
+     *
+     * @return the shared converter
+     */
+    public static MarkdownConverter shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a converter which does nothing, for input which has already been converted.
+     *
+     * @return the identity converter
+     */
+    public static MarkdownConverter identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * Converts HTML to Markdown.
+     *
+     * @param html the HTML, or {@code null} for none
+     *
+     * @return the Markdown (not {@code null})
+     */
+    public String convert(final String html) {
+        if (html == null) {
+            return "";
+        }
+        if (this == IDENTITY) {
+            return html;
+        }
+        if (html.length() > maxCachedLength) {
+            return doConvert(html);
+        }
+        final ByteBuffer digest = digest(html);
+        synchronized (cache) {
+            final String cached = cache.get(digest);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // convert outside the lock; a concurrent conversion of the same HTML yields the same result
+        final String markdown = doConvert(html);
+        synchronized (cache) {
+            cache.put(digest, markdown);
+        }
+        return markdown;
+    }
+
+    /**
+     * Converts the description and comment bodies of an issue to Markdown.
+     *
+     * @param issue the issue with HTML content
+     *
+     * @return an equivalent issue with Markdown content
+     */
+    public Issue convert(final Issue issue) {
+        if (this == IDENTITY) {
+            return issue;
+        }
+        return new Issue(
+            issue.key(),
+            issue.summary(),
+            convert(issue.description()),
+            issue.createdBy(),
+            issue.assignee(),
+            issue.status(),
+            issue.statusReason(),
+            issue.created(),
+            issue.updated(),
+            issue.resolved(),
+            issue.comments().stream().map(c -> new Comment(c.id(), c.author(), c.created(), convert(c.body()))).toList()
+        );
+    }
+
+    private String doConvert(final String html) {
+        FlexmarkHtmlConverter converter = pool.poll();
+        if (converter == null) {
+            converter = FlexmarkHtmlConverter.builder().build();
+        }
+        try {
+            return converter.convert(html);
+        } finally {
+            pool.offer(converter);
+        }
+    }
+
+    private static ByteBuffer digest(final String html) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(html.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
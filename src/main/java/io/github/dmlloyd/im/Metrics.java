@@ -0,0 +1,320 @@
+package io.github.dmlloyd.im;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for each stage of a migration, plus the overall progress.
+ * <p>
+ * Recording is cheap enough for every request and every issue: a few uncontended atomic updates, and no allocation.
+ * Latencies are kept in histograms with four buckets per power of two, so percentiles are accurate to within 25%.
+ * Instances are safe for concurrent use.
+ */
+public final class Metrics {
+    /**
+     * The stage of Jira HTTP requests.
+     */
+    public static final String FETCH = "fetch";
+    /**
+     * The stage of parsing Jira issue JSON.
+     */
+    public static final String PARSE = "parse";
+    /**
+     * The stage of converting issues to Markdown.
+     */
+    public static final String CONVERT = "convert";
+    /**
+     * The stage of creating GitHub issues.
+     */
+    public static final String POST = "post";
+    /**
+     * The stage of creating the GitHub comments of an issue.
+     */
+    public static final String COMMENT = "comment";
+    /**
+     * The stage of updating GitHub issues in the second pass.
+     */
+    public static final String UPDATE = "update";
+
+    private final ConcurrentHashMap<String, Stage> stages = new ConcurrentHashMap<>();
+    private final List<Stage> ordered = new CopyOnWriteArrayList<>();
+    private final LongAdder expected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Creates new metrics, with the migration stages in their pipeline order.
+     */
+    public Metrics() {
+        for (String name : List.of(FETCH, PARSE, CONVERT, POST, COMMENT, UPDATE)) {
+            stage(name);
+        }
+    }
+
+    /**
+     * Returns the stage with the given name, creating it if needed.
+     *
+     * @param name the stage name
+     *
+     * @return the stage
+     */
+    public Stage stage(final String name) {
+        final Stage existing = stages.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        return stages.computeIfAbsent(name, n -> {
+            final Stage stage = new Stage(n);
+            ordered.add(stage);
+            return stage;
+        });
+    }
+
+    /**
+     * Adds to the number of issues which are expected to be migrated.
+     *
+     * @param count the number of issues, which is negative for issues found to need no migration after all
+     */
+    public void expect(final long count) {
+        expected.add(count);
+    }
+
+    /**
+     * Records that an issue was migrated completely.
+     */
+    public void complete() {
+        completed.increment();
+    }
+
+    /**
+     * Starts printing a progress line at a fixed interval.
+     *
+     * @param interval the interval between progress lines, or zero to print none
+     * @param out      the stream to print to
+     *
+     * @return the reporter, which stops when closed
+     */
+    public Reporter startReporter(final Duration interval, final PrintStream out) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("Progress interval must not be negative (" + interval + ")");
+        }
+        if (interval.isZero()) {
+            return () -> {};
+        }
+        final Thread thread = Thread.ofVirtual().name("progress").start(() -> {
+            try {
+                for (;;) {
+                    Thread.sleep(interval);
+                    out.println(progress());
+                }
+            } catch (InterruptedException ignored) {
+                // closed
+            }
+        });
+        return thread::interrupt;
+    }
+
+    /**
+     * {@return a line showing the progress, the rate and the estimated time remaining}
+     */
+    public String progress() {
+        final long done = completed.sum();
+        final long total = expected.sum();
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+        final double rate = seconds > 0 ? done / seconds : 0;
+        final StringBuilder b = new StringBuilder(128);
+        b.append("Migrated ").append(done);
+        if (total > 0) {
+            b.append('/').append(total);
+        }
+        b.append(" issues (").append(String.format("%.1f", Double.valueOf(rate))).append("/s)");
+        if (total > done && rate > 0) {
+            b.append(", ETA ").append(formatDuration(Duration.ofSeconds((long) ((total - done) / rate))));
+        }
+        for (Stage stage : ordered) {
+            if (stage.count() > 0) {
+                b.append(" | ").append(stage.name()).append(" p50 ").append(formatNanos(stage.percentile(0.5)));
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * {@return a table of the count, errors and latency percentiles of every stage which was used}
+     */
+    public String summary() {
+        final StringBuilder b = new StringBuilder(512);
+        b.append(String.format("%-10s %10s %8s %10s %10s %10s %10s %10s%n", "stage", "count", "errors", "mean", "p50", "p90", "p99", "max"));
+        for (Stage stage : ordered) {
+            final long count = stage.count();
+            if (count == 0 && stage.errors() == 0) {
+                continue;
+            }
+            b.append(String.format("%-10s %10d %8d %10s %10s %10s %10s %10s%n", stage.name(), Long.valueOf(count), Long.valueOf(stage.errors()),
+                formatNanos(count == 0 ? 0 : stage.totalNanos() / count), formatNanos(stage.percentile(0.5)), formatNanos(stage.percentile(0.9)),
+                formatNanos(stage.percentile(0.99)), formatNanos(stage.maxNanos())));
+        }
+        b.append(progress()).append(" in ").append(formatDuration(Duration.ofNanos(System.nanoTime() - startNanos)));
+        return b.toString();
+    }
+
+    private static String formatNanos(final long nanos) {
+        if (nanos < 1_000_000) {
+            return String.format("%.1fus", Double.valueOf(nanos / 1e3));
+        } else if (nanos < 10_000_000_000L) {
+            return String.format("%.1fms", Double.valueOf(nanos / 1e6));
+        } else {
+            return String.format("%.1fs", Double.valueOf(nanos / 1e9));
+        }
+    }
+
+    private static String formatDuration(final Duration duration) {
+        final long seconds = duration.toSeconds();
+        return String.format("%d:%02d:%02d", Long.valueOf(seconds / 3600), Long.valueOf(seconds / 60 % 60), Long.valueOf(seconds % 60));
+    }
+
+    /**
+     * A progress reporter, which stops when closed.
+     */
+    @FunctionalInterface
+    public interface Reporter extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * The counters and latency histogram of one stage.
+     */
+    public static final class Stage {
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int BUCKETS = 64 << SUB_BUCKET_BITS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Stage(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * {@return the stage name}
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Records an operation which started at the given time and ended now.
+         *
+         * @param startNanos the start time, as given by {@link System#nanoTime()}
+         */
+        public void record(final long startNanos) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Records an operation of the given duration.
+         *
+         * @param nanos the duration in nanoseconds
+         */
+        public void recordNanos(final long nanos) {
+            final long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            totalNanos.add(value);
+            if (value > maxNanos.get()) {
+                maxNanos.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        /**
+         * Records a failed operation.
+         */
+        public void failed() {
+            errors.increment();
+        }
+
+        /**
+         * {@return the number of recorded operations}
+         */
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * {@return the number of failed operations}
+         */
+        public long errors() {
+            return errors.sum();
+        }
+
+        /**
+         * {@return the total duration of all recorded operations}
+         */
+        public long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * {@return the longest recorded duration}
+         */
+        public long maxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * Returns an upper bound of the given percentile of the recorded durations.
+         *
+         * @param fraction the percentile, between 0 and 1
+         *
+         * @return the duration in nanoseconds, or 0 if nothing was recorded
+         */
+        public long percentile(final double fraction) {
+            final long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += snapshot[i] = buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(total * fraction));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxNanos());
+                }
+            }
+            return maxNanos();
+        }
+
+        static int bucket(final long value) {
+            if (value < 1 << SUB_BUCKET_BITS) {
+                return (int) value;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+            return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+        }
+
+        static long upperBound(final int bucket) {
+            if (bucket < 1 << SUB_BUCKET_BITS) {
+                return bucket;
+            }
+            final int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+            final int sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+            return (((long) ((1 << SUB_BUCKET_BITS) | sub) + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
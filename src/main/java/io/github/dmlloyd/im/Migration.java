@@ -0,0 +1,326 @@
+package io.github.dmlloyd.im;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.StreamSupport;
+
+import io.github.dmlloyd.im.jira.JiraIssue;
+import io.github.dmlloyd.im.jira.JiraSnapshot;
+import io.github.dmlloyd.im.jira.JiraUserRegistry;
+import io.github.dmlloyd.im.jira.SyncCheckpoint;
+
+/**
+ * Migrates a stream of Jira issues to a GitHub repository.
+ * <p>
+ * The migration runs as a {@link Pipeline}: Jira issues are converted to Markdown, created on GitHub, and then get
+ * their comments, each stage with its own workers. Since every queue between the stages is bounded, slow GitHub
+ * writes hold back the Jira reads instead of accumulating issues in memory. Given a GraphQL client, the converted
+ * issues which queue up for the GitHub writes are grouped into batches of up to its batch size, and each batch of
+ * issues, and then all of their comments, are created with as few requests as the client can.
+ * <p>
+ * References to issues which were not created yet cannot be remapped when an issue is created, so a second pass
+ * updates the body of every issue whose description refers to other issues. Only those issues are retained
+ * until the second pass.
+ * <p>
+ * In {@linkplain Settings#sync() sync} mode, issues and comments which were created by an earlier run are rendered
+ * again, and updated only where their content changed since they were last written, as recorded in the journal.
+ * Comments which were created for a Jira comment that was deleted since are reported, and left as they are.
+ */
+public final class Migration {
+    private final URI jiraUrl;
+    private final GitHub.Client client;
+    private final GitHub.GraphQLClient graphql;
+    private final MarkdownConverter converter;
+    private final SyncCheckpoint checkpoint;
+    private final JiraUserRegistry registry;
+    private final Settings settings;
+    private final Metrics metrics;
+    private final IssueNumberMap mappedIssueNumbers = new IssueNumberMap();
+    private final AtomicInteger updated = new AtomicInteger();
+    private final AtomicInteger orphaned = new AtomicInteger();
+
+    /**
+     * Creates a new migration.
+     *
+     * @param jiraUrl    the Jira base URL
+     * @param client     the GitHub client, which should not convert issues again (see {@link MarkdownConverter#identity()})
+     * @param graphql    the GitHub GraphQL client to create issues and comments with in batches, or {@code null}
+     *                   to create them one by one with {@code client}
+     * @param converter  the converter for issue descriptions and comments
+     * @param checkpoint the checkpoint in which to record migrated issues
+     * @param journal    the journal of the client, whose issues are known to be created already, or {@code null} for none
+     * @param settings   the pipeline settings
+     * @param metrics    the metrics to record each stage and the progress in
+     */
+    public Migration(final URI jiraUrl, final GitHub.Client client, final GitHub.GraphQLClient graphql, final MarkdownConverter converter, final SyncCheckpoint checkpoint, final MigrationJournal journal, final Settings settings, final Metrics metrics) {
+        this(jiraUrl, client, graphql, converter, checkpoint, journal, JiraUserRegistry.shared(), settings, metrics);
+    }
+
+    /**
+     * Creates a new migration.
+     *
+     * @param jiraUrl    the Jira base URL
+     * @param client     the GitHub client, which should not convert issues again (see {@link MarkdownConverter#identity()})
+     * @param graphql    the GitHub GraphQL client to create issues and comments with in batches, or {@code null}
+     *                   to create them one by one with {@code client}
+     * @param converter  the converter for issue descriptions and comments
+     * @param checkpoint the checkpoint in which to record migrated issues
+     * @param journal    the journal of the client, whose issues are known to be created already, or {@code null} for none
+     * @param registry   the registry which maps the users of the issues to GitHub logins
+     * @param settings   the pipeline settings
+     * @param metrics    the metrics to record each stage and the progress in
+     */
+    public Migration(final URI jiraUrl, final GitHub.Client client, final GitHub.GraphQLClient graphql, final MarkdownConverter converter, final SyncCheckpoint checkpoint, final MigrationJournal journal, final JiraUserRegistry registry, final Settings settings, final Metrics metrics) {
+        if (settings.sync() && journal == null) {
+            throw new IllegalArgumentException("Syncing requires a journal");
+        }
+        if (journal != null) {
+            // references to issues created by an earlier run can be remapped right away
+            mappedIssueNumbers.putAll(journal.issueNumbers());
+        }
+        this.jiraUrl = jiraUrl;
+        this.client = client;
+        this.graphql = graphql;
+        this.converter = converter;
+        this.checkpoint = checkpoint;
+        this.registry = registry;
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Migrates the published issues, returning once every issue and comment was created and the second pass is
+     * complete.
+     *
+     * @param issues the publisher of the issues to migrate
+     *
+     * @return the number of migrated issues
+     *
+     * @throws Exception if a stage failed, in which case the migration stopped
+     */
+    public int run(final Flow.Publisher<JiraIssue> issues) throws Exception {
+        return run0(pipeline -> pipeline.source("fetch", settings.queueSize(), issues), Function.identity(), false);
+    }
+
+    /**
+     * Migrates the issues, returning once every issue and comment was created and the second pass is complete.
+     *
+     * @param issues the issues to migrate, such as a {@link JiraSnapshot}
+     *
+     * @return the number of migrated issues
+     *
+     * @throws Exception if a stage failed, in which case the migration stopped
+     */
+    public int run(final Iterable<JiraIssue> issues) throws Exception {
+        return run0(pipeline -> pipeline.source("read", settings.queueSize(), issues), Function.identity(), false);
+    }
+
+    /**
+     * Migrates the issues of a snapshot, returning once every issue and comment was created and the second pass is
+     * complete.
+     * <p>
+     * Only handles pass between the stages until an issue is converted, and the second pass decodes and converts
+     * each issue again instead of holding on to it, so the heap needed depends on the queue sizes rather than on
+     * the size of the project.
+     *
+     * @param snapshot the snapshot
+     * @param filter   the filter selecting the issues to migrate
+     *
+     * @return the number of migrated issues
+     *
+     * @throws Exception if a stage failed, in which case the migration stopped
+     */
+    public int run(final JiraSnapshot snapshot, final Predicate<JiraSnapshot.Handle> filter) throws Exception {
+        final Iterable<JiraSnapshot.Handle> handles = () -> StreamSupport.stream(snapshot.handles().spliterator(), false).filter(filter).iterator();
+        return run0(pipeline -> pipeline.source("read", settings.queueSize(), handles), JiraSnapshot.Handle::issue, true);
+    }
+
+    /**
+     * Runs the migration.
+     *
+     * @param source the function adding the source stage to the pipeline
+     * @param loader the function returning the issue of an item of the source
+     * @param reload {@code true} to load and convert issues again for the second pass, or {@code false} to hold on
+     *               to the converted issues until then
+     */
+    private <T> int run0(final Function<Pipeline, Pipeline.Stage<T>> source, final Function<? super T, JiraIssue> loader, final boolean reload) throws Exception {
+        final Queue<Supplier<Issue>> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger count = new AtomicInteger();
+        final int capacity = settings.queueSize();
+        final Pipeline pipeline = new Pipeline();
+        source.apply(pipeline)
+            .map("convert", settings.convertWorkers(), capacity, timed(Metrics.CONVERT, item -> {
+                final JiraIssue jira = loader.apply(item);
+                return new Work<>(item, jira, converter.convert(jira.toIssue(registry)));
+            }))
+            // the GraphQL client sends the issues of a batch, and then their comments, in as few requests as it can
+            .batch("batch", graphql == null || settings.dryRun() ? 1 : graphql.batchSize(), capacity)
+            .map("issue", settings.issueWorkers(), capacity, timed(Metrics.POST, batch -> {
+                if (settings.dryRun()) {
+                    for (Work<T> work : batch) {
+                        final Issue issue = work.issue();
+                        System.out.printf("Would create issue %s with %d comment(s): %s%n", issue.key(), Integer.valueOf(issue.comments().size()), issue.summary());
+                        count.incrementAndGet();
+                        metrics.complete();
+                    }
+                    return null;
+                }
+                if (graphql != null) {
+                    graphql.createIssues(issues(batch), mappedIssueNumbers);
+                }
+                for (Work<T> work : batch) {
+                    final Issue issue = work.issue();
+                    if (graphql == null) {
+                        mappedIssueNumbers.put(issue.key(), Integer.valueOf(client.createIssue(issue)));
+                    }
+                    if (settings.sync() && client.syncIssue(issue, mappedIssueNumbers)) {
+                        updated.incrementAndGet();
+                    }
+                    if (issue.description() != null && IssueKeyRemapper.hasReferences(issue.description())) {
+                        pending.add(reload ? reloader(work.source(), loader) : () -> issue);
+                    }
+                }
+                return batch;
+            }))
+            .forEach("comment", settings.commentWorkers(), timedSink(Metrics.COMMENT, batch -> {
+                if (settings.sync()) {
+                    for (Work<T> work : batch) {
+                        final Issue issue = work.issue();
+                        updated.addAndGet(client.syncComments(issue, mappedIssueNumbers));
+                        client.orphanedComments(issue).forEach((commentId, id) -> {
+                            System.out.printf("Comment %s of issue %s no longer exists in Jira; left GitHub comment %d as it is%n", commentId, issue.key(), id);
+                            orphaned.incrementAndGet();
+                        });
+                    }
+                }
+                // comments of one issue are created in order by a single worker
+                if (graphql != null) {
+                    graphql.createComments(issues(batch), mappedIssueNumbers);
+                } else {
+                    for (Work<T> work : batch) {
+                        for (Comment comment : work.issue().comments()) {
+                            client.createComment(work.issue(), comment, mappedIssueNumbers);
+                        }
+                    }
+                }
+                for (Work<T> work : batch) {
+                    checkpoint.record(work.jira());
+                    count.incrementAndGet();
+                    metrics.complete();
+                }
+            }));
+        pipeline.run();
+        if (!pending.isEmpty()) {
+            final GitHub.IssueCreationFactory bodies = new GitHub.IssueCreationFactory(jiraUrl, Map.of(), MarkdownConverter.identity());
+            final Pipeline update = new Pipeline();
+            update.source("pending", capacity, pending)
+                .forEach("update", settings.issueWorkers(), timedSink(Metrics.UPDATE, supplier -> {
+                    final Issue issue = supplier.get();
+                    if (client.updateIssue(issue, bodies.issueCreateRequest(issue).getString("body"), mappedIssueNumbers) && settings.sync()) {
+                        updated.incrementAndGet();
+                    }
+                }));
+            update.run();
+        }
+        return count.get();
+    }
+
+    /**
+     * {@return the number of issues and comments created by an earlier run which were updated by sync runs so far}
+     */
+    public int updated() {
+        return updated.get();
+    }
+
+    /**
+     * {@return the number of comments created by an earlier run whose Jira comment no longer exists, as found by sync
+     * runs so far}
+     */
+    public int orphaned() {
+        return orphaned.get();
+    }
+
+    private static List<Issue> issues(final List<? extends Work<?>> batch) {
+        return batch.stream().map(Work::issue).toList();
+    }
+
+    private <T> Supplier<Issue> reloader(final T item, final Function<? super T, JiraIssue> loader) {
+        return () -> converter.convert(loader.apply(item).toIssue(registry));
+    }
+
+    private <T, R> Pipeline.Task<T, R> timed(final String stageName, final Pipeline.Task<T, R> task) {
+        final Metrics.Stage stage = metrics.stage(stageName);
+        return item -> {
+            final long start = System.nanoTime();
+            try {
+                final R result = task.apply(item);
+                stage.record(start);
+                return result;
+            } catch (Exception e) {
+                stage.failed();
+                throw e;
+            }
+        };
+    }
+
+    private <T> Pipeline.Sink<T> timedSink(final String stageName, final Pipeline.Sink<T> sink) {
+        final Pipeline.Task<T, Void> task = timed(stageName, item -> {
+            sink.accept(item);
+            return null;
+        });
+        return task::apply;
+    }
+
+    /**
+     * The pipeline settings.
+     *
+     * @param queueSize      the capacity of each queue between stages
+     * @param convertWorkers the number of workers converting issues to Markdown
+     * @param issueWorkers   the number of workers creating and updating issues
+     * @param commentWorkers the number of workers creating comments
+     * @param dryRun         {@code true} to fetch and convert issues without writing anything to GitHub
+     * @param sync           {@code true} to also update the issues and comments created by an earlier run whose
+     *                       content changed since
+     */
+    public record Settings(int queueSize, int convertWorkers, int issueWorkers, int commentWorkers, boolean dryRun, boolean sync) {
+        /**
+         * The default capacity of each queue between stages.
+         */
+        public static final int DEFAULT_QUEUE_SIZE = 32;
+        /**
+         * The default number of workers creating issues.
+         */
+        public static final int DEFAULT_ISSUE_WORKERS = 4;
+        /**
+         * The default number of workers creating comments.
+         */
+        public static final int DEFAULT_COMMENT_WORKERS = 4;
+
+        public Settings {
+            if (queueSize < 1 || convertWorkers < 1 || issueWorkers < 1 || commentWorkers < 1) {
+                throw new IllegalArgumentException("Queue size and worker counts must be positive");
+            }
+        }
+
+        public Settings(final int queueSize, final int convertWorkers, final int issueWorkers, final int commentWorkers, final boolean dryRun) {
+            this(queueSize, convertWorkers, issueWorkers, commentWorkers, dryRun, false);
+        }
+
+        /**
+         * {@return the default settings, converting on one worker per processor}
+         */
+        public static Settings defaults() {
+            return new Settings(DEFAULT_QUEUE_SIZE, Runtime.getRuntime().availableProcessors(), DEFAULT_ISSUE_WORKERS, DEFAULT_COMMENT_WORKERS, false);
+        }
+    }
+
+    private record Work<T>(T source, JiraIssue jira, Issue issue) {}
+}
@@ -0,0 +1,353 @@
+package io.github.dmlloyd.im;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * A durable, append-only record of the issues and comments created on GitHub, which allows an interrupted
+ * migration to be resumed without creating anything twice.
+ * <p>
+ * Each record is written as it happens, framed by its length and followed by a CRC-32 checksum, so that a record
+ * torn by a crash is detected and discarded when the journal is next opened. Writers wait until their record is
+ * on disk, but concurrent writers share their {@code fsync} calls: while one is in progress, further records are
+ * appended and then made durable all at once by the next one.
+ * <p>
+ * Comments are identified by a key which is stable within their issue, such as their Jira comment id, rather than by
+ * their position, which shifts when a comment is deleted.
+ * <p>
+ * Issues and comments are recorded along with a hash of their content as written, so that a later run can tell
+ * which of them changed since. Recording an issue or comment again replaces its hash.
+ * <p>
+ * Opening a journal replays it through a memory mapping of the file into in-memory indexes, so lookups never
+ * touch the disk. Instances are safe for concurrent use.
+ */
+public final class MigrationJournal implements Closeable {
+    private static final int MAGIC = 0x494d4a02;
+    private static final byte ISSUE = 1;
+    private static final byte COMMENT = 2;
+
+    private final Path path;
+    private final FileOutputStream out;
+    private final IssueNumberMap issueNumbers;
+    private final ConcurrentHashMap<String, Long> issueHashes;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, CommentRecord>> comments;
+    private final Object lock = new Object();
+    private long written;
+    private long synced;
+    private boolean syncing;
+
+    private MigrationJournal(final Path path, final FileOutputStream out, final long size, final Indexes indexes) {
+        this.path = path;
+        this.out = out;
+        this.issueNumbers = indexes.issueNumbers();
+        this.issueHashes = indexes.issueHashes();
+        this.comments = indexes.comments();
+        this.written = size;
+        this.synced = size;
+    }
+
+    /**
+     * Opens the journal file, creating it if it does not exist and replaying it otherwise. A torn record at the end
+     * of the file is truncated.
+     *
+     * @param path the journal file
+     *
+     * @return the journal
+     *
+     * @throws IOException if the file could not be read, or is not a journal of this version
+     */
+    public static MigrationJournal open(final Path path) throws IOException {
+        final Indexes indexes = new Indexes(new IssueNumberMap(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        final long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() == 0) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, MAGIC));
+                channel.force(true);
+                size = 4;
+            } else {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException(String.format("Journal %s is too large", path));
+                }
+                final MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buf.remaining() < 4 || buf.getInt() != MAGIC) {
+                    throw new IOException(String.format("File %s is not a migration journal", path));
+                }
+                size = replay(buf, indexes);
+                if (size < channel.size()) {
+                    channel.truncate(size);
+                    channel.force(true);
+                }
+            }
+        }
+        // a plain stream, because an interrupted channel would be closed for every other writer too
+        return new MigrationJournal(path, new FileOutputStream(path.toFile(), true), size, indexes);
+    }
+
+    /**
+     * Replays the records of the buffer, returning the position after the last intact one.
+     */
+    private static long replay(final ByteBuffer buf, final Indexes indexes) {
+        final CRC32 crc = new CRC32();
+        while (buf.remaining() >= 4) {
+            final int start = buf.position();
+            final int length = buf.getInt();
+            if (length < 1 || buf.remaining() < length + 4) {
+                return start;
+            }
+            final ByteBuffer payload = buf.slice(buf.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            buf.position(buf.position() + length);
+            if ((int) crc.getValue() != buf.getInt()) {
+                return start;
+            }
+            try {
+                final byte type = payload.get();
+                final String key = readKey(payload);
+                switch (type) {
+                    case ISSUE -> {
+                        indexes.issueNumbers().put(key, Integer.valueOf(payload.getInt()));
+                        indexes.issueHashes().put(key, Long.valueOf(payload.getLong()));
+                    }
+                    case COMMENT -> {
+                        final String commentKey = readKey(payload);
+                        putComment(indexes.comments(), key, commentKey, payload.getLong(), payload.getLong());
+                    }
+                    default -> {
+                        // written by a newer version; skip it
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                return start;
+            }
+        }
+        return buf.position();
+    }
+
+    /**
+     * {@return the journal file}
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Returns the GitHub number of an issue created earlier.
+     *
+     * @param key the Jira issue key
+     *
+     * @return the GitHub issue number, or {@code -1} if the issue was not created yet
+     */
+    public int issueNumber(final String key) {
+        final Integer number = issueNumbers.get(key);
+        return number == null ? -1 : number.intValue();
+    }
+
+    /**
+     * {@return an unmodifiable view of the Jira issue keys and GitHub numbers of every issue created so far}
+     */
+    public Map<String, Integer> issueNumbers() {
+        return Collections.unmodifiableMap(issueNumbers);
+    }
+
+    /**
+     * Returns the GitHub id of a comment created earlier.
+     *
+     * @param key        the Jira issue key
+     * @param commentKey the key of the comment within the issue
+     *
+     * @return the GitHub comment id, or {@code -1} if the comment was not created yet
+     */
+    public long commentId(final String key, final String commentKey) {
+        final CommentRecord record = comment(key, commentKey);
+        return record == null ? -1 : record.id();
+    }
+
+    /**
+     * Returns the GitHub ids of every comment of an issue created so far.
+     *
+     * @param key the Jira issue key
+     *
+     * @return a map of the comment keys to their GitHub comment ids, which is empty if no comment was created yet
+     */
+    public Map<String, Long> commentIds(final String key) {
+        final ConcurrentHashMap<String, CommentRecord> records = comments.get(key);
+        if (records == null) {
+            return Map.of();
+        }
+        final Map<String, Long> ids = new HashMap<>(records.size());
+        records.forEach((commentKey, record) -> ids.put(commentKey, Long.valueOf(record.id())));
+        return ids;
+    }
+
+    /**
+     * Returns the content hash which an issue was last recorded with.
+     *
+     * @param key the Jira issue key
+     *
+     * @return the content hash, or {@code 0} if the issue was not recorded
+     */
+    public long issueHash(final String key) {
+        final Long hash = issueHashes.get(key);
+        return hash == null ? 0 : hash.longValue();
+    }
+
+    /**
+     * Returns the content hash which a comment was last recorded with.
+     *
+     * @param key        the Jira issue key
+     * @param commentKey the key of the comment within the issue
+     *
+     * @return the content hash, or {@code 0} if the comment was not recorded
+     */
+    public long commentHash(final String key, final String commentKey) {
+        final CommentRecord record = comment(key, commentKey);
+        return record == null ? 0 : record.hash();
+    }
+
+    /**
+     * Records an issue which was created or updated with the given content, returning once the record is durable.
+     *
+     * @param key    the Jira issue key
+     * @param number the GitHub issue number
+     * @param hash   the content hash, which must not be {@code 0}
+     *
+     * @throws IOException if the record could not be written
+     */
+    public void recordIssue(final String key, final int number, final long hash) throws IOException {
+        final ByteBuffer payload = newPayload(ISSUE, key, 12);
+        payload.putInt(number).putLong(hash);
+        append(payload);
+        issueNumbers.put(key, Integer.valueOf(number));
+        issueHashes.put(key, Long.valueOf(hash));
+    }
+
+    /**
+     * Records a comment which was created or updated with the given content, returning once the record is durable.
+     *
+     * @param key        the Jira issue key
+     * @param commentKey the key of the comment within the issue
+     * @param id         the GitHub comment id
+     * @param hash       the content hash, which must not be {@code 0}
+     *
+     * @throws IOException if the record could not be written
+     */
+    public void recordComment(final String key, final String commentKey, final long id, final long hash) throws IOException {
+        final ByteBuffer payload = newPayload(COMMENT, key, commentKey, 16);
+        payload.putLong(id).putLong(hash);
+        append(payload);
+        putComment(comments, key, commentKey, id, hash);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            out.close();
+        }
+    }
+
+    private static ByteBuffer newPayload(final byte type, final String key, final int extra) {
+        final byte[] keyBytes = keyBytes(key, "Issue");
+        return ByteBuffer.allocate(1 + 2 + keyBytes.length + extra).put(type).putShort((short) keyBytes.length).put(keyBytes);
+    }
+
+    private static ByteBuffer newPayload(final byte type, final String key, final String commentKey, final int extra) {
+        final byte[] commentKeyBytes = keyBytes(commentKey, "Comment");
+        return newPayload(type, key, 2 + commentKeyBytes.length + extra).putShort((short) commentKeyBytes.length).put(commentKeyBytes);
+    }
+
+    private static byte[] keyBytes(final String key, final String kind) {
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > 0xffff) {
+            throw new IllegalArgumentException(kind + " key is too long");
+        }
+        return keyBytes;
+    }
+
+    private static String readKey(final ByteBuffer payload) {
+        final byte[] keyBytes = new byte[Short.toUnsignedInt(payload.getShort())];
+        payload.get(keyBytes);
+        return new String(keyBytes, StandardCharsets.UTF_8);
+    }
+
+    private CommentRecord comment(final String key, final String commentKey) {
+        final ConcurrentHashMap<String, CommentRecord> records = comments.get(key);
+        return records == null ? null : records.get(commentKey);
+    }
+
+    /**
+     * Indexes a comment record; a record without a hash keeps the hash the comment was recorded with before.
+     */
+    private static void putComment(final ConcurrentHashMap<String, ConcurrentHashMap<String, CommentRecord>> map, final String key, final String commentKey, final long id, final long hash) {
+        map.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(commentKey, new CommentRecord(id, hash));
+    }
+
+    private void append(final ByteBuffer payload) throws IOException {
+        final byte[] bytes = payload.array();
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        final byte[] record = ByteBuffer.allocate(4 + bytes.length + 4).putInt(bytes.length).put(bytes).putInt((int) crc.getValue()).array();
+        final long position;
+        synchronized (lock) {
+            out.write(record);
+            position = written += record.length;
+        }
+        awaitDurable(position);
+    }
+
+    /**
+     * Waits until everything up to the position is on disk, syncing it ourselves unless another thread already is.
+     */
+    private void awaitDurable(final long position) throws IOException {
+        final long target;
+        synchronized (lock) {
+            while (synced < position && syncing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the journal to sync");
+                }
+            }
+            if (synced >= position) {
+                return;
+            }
+            syncing = true;
+            target = written;
+        }
+        boolean ok = false;
+        try {
+            // records appended while this runs are synced by the next waiter, in one go
+            out.getFD().sync();
+            ok = true;
+        } finally {
+            synchronized (lock) {
+                syncing = false;
+                if (ok) {
+                    synced = target;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private record Indexes(IssueNumberMap issueNumbers, ConcurrentHashMap<String, Long> issueHashes, ConcurrentHashMap<String, ConcurrentHashMap<String, CommentRecord>> comments) {
+    }
+
+    private record CommentRecord(long id, long hash) {
+    }
+}
@@ -0,0 +1,337 @@
+package io.github.dmlloyd.im;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A pipeline of stages connected by bounded queues. Each stage has its own number of worker threads, and a stage
+ * whose output queue is full blocks until the next stage catches up. Backpressure therefore travels all the way back
+ * to the source, and the number of items in flight is bounded by the queue capacities and worker counts.
+ * <p>
+ * Stages are declared first and started together by {@link #run()}. When the source is exhausted, each stage drains
+ * its queue and then signals the end to the next stage. If any worker fails, all stages are interrupted and
+ * {@code run()} throws the first failure.
+ */
+public final class Pipeline {
+    private static final Object END = new Object();
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private boolean started;
+
+    /**
+     * Creates a new, empty pipeline.
+     */
+    public Pipeline() {
+    }
+
+    /**
+     * Adds a source stage which takes its items from a publisher. Items are requested one at a time, as they fit
+     * into the output queue.
+     *
+     * @param name      the stage name, used for thread names
+     * @param capacity  the capacity of the output queue
+     * @param publisher the item publisher
+     *
+     * @return the source stage
+     */
+    public <T> Stage<T> source(final String name, final int capacity, final Flow.Publisher<? extends T> publisher) {
+        final Stage<T> stage = new Stage<>(capacity);
+        addThreads(name, 1, () -> {
+            final PublisherBridge<T> bridge = new PublisherBridge<>(stage.queue);
+            publisher.subscribe(bridge);
+            bridge.await();
+        }, stage.queue);
+        return stage;
+    }
+
+    /**
+     * Adds a source stage which takes its items from an iterable.
+     *
+     * @param name     the stage name, used for thread names
+     * @param capacity the capacity of the output queue
+     * @param items    the items
+     *
+     * @return the source stage
+     */
+    public <T> Stage<T> source(final String name, final int capacity, final Iterable<? extends T> items) {
+        final Stage<T> stage = new Stage<>(capacity);
+        addThreads(name, 1, () -> {
+            for (T item : items) {
+                stage.queue.put(item);
+            }
+        }, stage.queue);
+        return stage;
+    }
+
+    /**
+     * Starts every stage and waits until all items have passed through the pipeline.
+     *
+     * @throws Exception the first failure of any stage
+     */
+    public void run() throws Exception {
+        if (started) {
+            throw new IllegalStateException("Pipeline was already run");
+        }
+        started = true;
+        threads.forEach(Thread::start);
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            fail(e);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        final Throwable t = failure.get();
+        if (t instanceof Exception e) {
+            throw e;
+        } else if (t instanceof Error e) {
+            throw e;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    private void addThreads(final String name, final int count, final Body body, final BlockingQueue<Object> out) {
+        if (started) {
+            throw new IllegalStateException("Pipeline was already run");
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("Stage " + name + " needs at least one worker");
+        }
+        final AtomicInteger running = new AtomicInteger(count);
+        for (int i = 0; i < count; i++) {
+            threads.add(Thread.ofVirtual().name(name + "-" + i).unstarted(() -> {
+                try {
+                    body.run();
+                    if (running.decrementAndGet() == 0 && out != null) {
+                        out.put(END);
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }));
+        }
+    }
+
+    private void fail(final Throwable t) {
+        if (failure.compareAndSet(null, t)) {
+            threads.forEach(Thread::interrupt);
+        } else if (!(t instanceof InterruptedException)) {
+            failure.get().addSuppressed(t);
+        }
+    }
+
+    /**
+     * A task run by the workers of a stage.
+     */
+    @FunctionalInterface
+    public interface Task<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    /**
+     * A task run by the workers of a final stage.
+     */
+    @FunctionalInterface
+    public interface Sink<T> {
+        void accept(T item) throws Exception;
+    }
+
+    private interface Body {
+        void run() throws Exception;
+    }
+
+    /**
+     * A stage of the pipeline, which can be followed by further stages.
+     */
+    public final class Stage<T> {
+        private final BlockingQueue<Object> queue;
+
+        private Stage(final int capacity) {
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Adds a stage which transforms the items of this stage.
+         *
+         * @param name     the stage name, used for thread names
+         * @param workers  the number of worker threads
+         * @param capacity the capacity of the output queue
+         * @param task     the transformation; items for which it returns {@code null} are dropped
+         *
+         * @return the new stage
+         */
+        public <R> Stage<R> map(final String name, final int workers, final int capacity, final Task<? super T, ? extends R> task) {
+            final Stage<R> next = new Stage<>(capacity);
+            addThreads(name, workers, () -> {
+                Object item;
+                while ((item = take()) != END) {
+                    @SuppressWarnings("unchecked")
+                    final R result = task.apply((T) item);
+                    if (result != null) {
+                        next.queue.put(result);
+                    }
+                }
+            }, next.queue);
+            return next;
+        }
+
+        /**
+         * Adds a stage which groups the items of this stage into lists. Each list is started by the next item, and
+         * takes whatever further items are queued already, up to the given size; it never waits for more, so items
+         * are only grouped when they arrive faster than the next stage takes them.
+         *
+         * @param name     the stage name, used for thread names
+         * @param size     the maximum number of items of a list
+         * @param capacity the capacity of the output queue
+         *
+         * @return the new stage
+         */
+        public Stage<List<T>> batch(final String name, final int size, final int capacity) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Batch size must be positive (" + size + ")");
+            }
+            final Stage<List<T>> next = new Stage<>(capacity);
+            // a single worker, so that items keep their order
+            addThreads(name, 1, () -> {
+                Object item = take();
+                while (item != END) {
+                    final List<T> batch = new ArrayList<>(size);
+                    do {
+                        @SuppressWarnings("unchecked")
+                        final T t = (T) item;
+                        batch.add(t);
+                    } while (batch.size() < size && (item = queue.poll()) != null && item != END);
+                    next.queue.put(batch);
+                    if (item != END) {
+                        item = take();
+                    }
+                }
+            }, next.queue);
+            return next;
+        }
+
+        /**
+         * Adds a final stage which consumes the items of this stage.
+         *
+         * @param name    the stage name, used for thread names
+         * @param workers the number of worker threads
+         * @param sink    the consumer
+         */
+        public void forEach(final String name, final int workers, final Sink<? super T> sink) {
+            addThreads(name, workers, () -> {
+                Object item;
+                while ((item = take()) != END) {
+                    @SuppressWarnings("unchecked")
+                    final T t = (T) item;
+                    sink.accept(t);
+                }
+            }, null);
+        }
+
+        private Object take() throws InterruptedException {
+            final Object item = queue.take();
+            if (item == END) {
+                // leave the end marker for the other workers of the stage
+                queue.put(END);
+            }
+            return item;
+        }
+    }
+
+    /**
+     * Feeds a publisher's items into a queue, requesting each next item only once the previous one was queued.
+     */
+    private static final class PublisherBridge<T> implements Flow.Subscriber<T> {
+        private final BlockingQueue<Object> queue;
+        private final Object lock = new Object();
+        private Flow.Subscription subscription;
+        private boolean done;
+        private Throwable error;
+        private volatile boolean cancelled;
+
+        PublisherBridge(final BlockingQueue<Object> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            synchronized (lock) {
+                this.subscription = subscription;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final T item) {
+            try {
+                // the publisher's thread is not ours to interrupt, so poll for cancellation while the queue is full
+                while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                onError(e);
+                return;
+            }
+            final Flow.Subscription subscription;
+            synchronized (lock) {
+                subscription = this.subscription;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            synchronized (lock) {
+                error = throwable;
+                done = true;
+                lock.notifyAll();
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (lock) {
+                done = true;
+                lock.notifyAll();
+            }
+        }
+
+        void await() throws Exception {
+            synchronized (lock) {
+                try {
+                    while (!done) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    cancelled = true;
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                    throw e;
+                }
+                if (error instanceof Exception e) {
+                    throw e;
+                } else if (error != null) {
+                    throw new RuntimeException(error);
+                }
+            }
+        }
+    }
+}
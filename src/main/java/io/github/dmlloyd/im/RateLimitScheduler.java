@@ -0,0 +1,314 @@
+package io.github.dmlloyd.im;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.json.JsonObject;
+
+/**
+ * Paces GitHub requests per auth token so that they stay within GitHub's rate limits.
+ * <p>
+ * Content-creating requests are paced by two token buckets per auth token, matching GitHub's secondary limits
+ * (by default 80 per minute and 500 per hour). On top of that, the {@code X-RateLimit-Remaining} and
+ * {@code X-RateLimit-Reset} headers of each response track the primary limit, and a {@code 403} or {@code 429}
+ * caused by either limit pauses every request of that token until {@code Retry-After} or the reset time has passed.
+ * A secondary limit response which gives neither, and which may only be recognized by its message, pauses the
+ * token for a minute.
+ * <p>
+ * Callers {@linkplain #reserve(String) reserve} a slot before each request and wait for the returned delay, which
+ * works for blocking and asynchronous senders alike, and then pass the response to {@link #update(String, HttpResponse)}.
+ * Instances are safe for concurrent use.
+ * <p>
+ * Migrations which share tokens each use their own {@linkplain #lane(String) lane} of one scheduler. Blocking
+ * callers of different lanes then take turns reserving the slots of a token, so that each migration gets an equal
+ * share of the token no matter how many workers it has.
+ */
+public final class RateLimitScheduler {
+    /**
+     * GitHub asks for at least a minute of backoff after a secondary rate limit response without a
+     * {@code Retry-After} header.
+     */
+    private static final Duration SECONDARY_BACKOFF = Duration.ofMinutes(1);
+
+    private final ConcurrentHashMap<String, TokenState> states;
+    private final ConcurrentHashMap<String, FairScheduler> turns;
+    private final int perMinute;
+    private final int perHour;
+    private final String lane;
+
+    /**
+     * Creates a new scheduler with GitHub's documented secondary limits for content creation.
+     */
+    public RateLimitScheduler() {
+        this(80, 500);
+    }
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param perMinute the maximum number of content-creating requests per token per minute
+     * @param perHour   the maximum number of content-creating requests per token per hour
+     */
+    public RateLimitScheduler(final int perMinute, final int perHour) {
+        if (perMinute < 1 || perHour < 1) {
+            throw new IllegalArgumentException("Rate limits must be positive");
+        }
+        this.states = new ConcurrentHashMap<>();
+        this.turns = new ConcurrentHashMap<>();
+        this.perMinute = perMinute;
+        this.perHour = perHour;
+        this.lane = null;
+    }
+
+    private RateLimitScheduler(final RateLimitScheduler shared, final String lane) {
+        this.states = shared.states;
+        this.turns = shared.turns;
+        this.perMinute = shared.perMinute;
+        this.perHour = shared.perHour;
+        this.lane = lane;
+    }
+
+    /**
+     * Returns a view of this scheduler which shares its tokens and limits, and whose blocking callers take turns
+     * with those of the other lanes. Asynchronous {@linkplain #reserve(String) reservations} are not affected.
+     *
+     * @param name the lane name, such as the name of a migration
+     *
+     * @return the lane
+     */
+    public RateLimitScheduler lane(final String name) {
+        return new RateLimitScheduler(this, name);
+    }
+
+    /**
+     * Reserves a slot for a content-creating request with the given token.
+     *
+     * @param token the auth token
+     *
+     * @return how long to wait before sending the request (not {@code null})
+     */
+    public Duration reserve(final String token) {
+        return state(token).reserve(System.nanoTime(), System.currentTimeMillis());
+    }
+
+    /**
+     * Returns how long a content-creating request with the given token would have to wait if a slot was reserved
+     * now, without reserving it.
+     *
+     * @param token the auth token
+     *
+     * @return the delay (not {@code null})
+     */
+    public Duration availableIn(final String token) {
+        return state(token).peek(System.nanoTime(), System.currentTimeMillis());
+    }
+
+    /**
+     * Blocks until a slot for a content-creating request with the given token is available.
+     *
+     * @param token the auth token
+     *
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public void acquire(final String token) throws InterruptedException {
+        if (lane == null) {
+            sleep(reserve(token));
+            return;
+        }
+        final FairScheduler.Lane turn = turns.computeIfAbsent(token, ignored -> new FairScheduler(1)).lane(lane);
+        turn.acquire();
+        try {
+            // the turn is held until the slot starts, so that the next slot goes to the next lane
+            sleep(reserve(token));
+        } finally {
+            turn.release();
+        }
+    }
+
+    private static void sleep(final Duration delay) throws InterruptedException {
+        if (!delay.isZero()) {
+            Thread.sleep(delay);
+        }
+    }
+
+    /**
+     * Records the rate limit headers of a response.
+     *
+     * @param token    the auth token the request was sent with
+     * @param response the response
+     *
+     * @return {@code true} if the request was rejected by a rate limit and should be retried after reserving
+     *      another slot, or {@code false} if the response should be handled as is
+     */
+    public boolean update(final String token, final HttpResponse<?> response) {
+        final TokenState state = state(token);
+        final HttpHeaders headers = response.headers();
+        final OptionalLong remaining = headers.firstValueAsLong("X-RateLimit-Remaining");
+        final OptionalLong reset = headers.firstValueAsLong("X-RateLimit-Reset");
+        final long nowMillis = System.currentTimeMillis();
+        final long nowNanos = System.nanoTime();
+        if (remaining.isPresent() && reset.isPresent()) {
+            state.primary(remaining.getAsLong(), reset.getAsLong() * 1000);
+        }
+        final int status = response.statusCode();
+        if (status != 403 && status != 429) {
+            return false;
+        }
+        final Duration retryAfter = retryAfter(headers, nowMillis);
+        if (retryAfter != null) {
+            state.blockFor(nowNanos, retryAfter);
+            return true;
+        }
+        if (remaining.isPresent() && remaining.getAsLong() == 0 && reset.isPresent()) {
+            state.blockFor(nowNanos, Duration.ofMillis(Math.max(0, reset.getAsLong() * 1000 - nowMillis)));
+            return true;
+        }
+        // secondary rate limit responses often come as a 403 with primary quota left, and only say so in the body
+        if (status == 429 || isSecondaryRateLimit(response.body())) {
+            state.blockFor(nowNanos, SECONDARY_BACKOFF);
+            return true;
+        }
+        // a plain 403 is a permission problem, not a rate limit
+        return false;
+    }
+
+    /**
+     * Parses the {@code Retry-After} header, which is either a number of seconds or an HTTP date.
+     *
+     * @return the delay, or {@code null} if there is no valid header
+     */
+    static Duration retryAfter(final HttpHeaders headers, final long nowMillis) {
+        final String value = headers.firstValue("Retry-After").map(String::strip).orElse(null);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            final long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Duration.ofMillis(Math.max(0, at - nowMillis));
+        } catch (DateTimeParseException ignored) {
+            return null;
+        }
+    }
+
+    private static boolean isSecondaryRateLimit(final Object body) {
+        if (body instanceof JsonObject json) {
+            final String message = json.getString("message", "").toLowerCase(Locale.ROOT);
+            return message.contains("secondary rate limit") || message.contains("abuse detection");
+        }
+        return false;
+    }
+
+    /**
+     * Returns the remaining primary quota of the token, as of the last response.
+     *
+     * @param token the auth token
+     *
+     * @return the remaining quota, or {@code -1} if unknown
+     */
+    public long remaining(final String token) {
+        return state(token).remaining();
+    }
+
+    private TokenState state(final String token) {
+        return states.computeIfAbsent(token, ignored -> new TokenState(perMinute, perHour));
+    }
+
+    private static final class TokenState {
+        private final Bucket minute;
+        private final Bucket hour;
+        private long remaining = -1;
+        private long resetMillis;
+        private long blockedUntilNanos;
+        private boolean blocked;
+
+        TokenState(final int perMinute, final int perHour) {
+            minute = new Bucket(perMinute, Duration.ofMinutes(1));
+            hour = new Bucket(perHour, Duration.ofHours(1));
+        }
+
+        synchronized Duration reserve(final long nowNanos, final long nowMillis) {
+            long wait = Math.max(minute.take(nowNanos), hour.take(nowNanos));
+            if (blocked) {
+                wait = Math.max(wait, blockedUntilNanos - nowNanos);
+            }
+            if (remaining == 0 && resetMillis > nowMillis) {
+                wait = Math.max(wait, Duration.ofMillis(resetMillis - nowMillis).toNanos());
+            } else if (remaining > 0) {
+                remaining--;
+            }
+            return wait <= 0 ? Duration.ZERO : Duration.ofNanos(wait);
+        }
+
+        synchronized Duration peek(final long nowNanos, final long nowMillis) {
+            long wait = Math.max(minute.peek(nowNanos), hour.peek(nowNanos));
+            if (blocked) {
+                wait = Math.max(wait, blockedUntilNanos - nowNanos);
+            }
+            if (remaining == 0 && resetMillis > nowMillis) {
+                wait = Math.max(wait, Duration.ofMillis(resetMillis - nowMillis).toNanos());
+            }
+            return wait <= 0 ? Duration.ZERO : Duration.ofNanos(wait);
+        }
+
+        synchronized void primary(final long remaining, final long resetMillis) {
+            this.remaining = remaining;
+            this.resetMillis = resetMillis;
+        }
+
+        synchronized void blockFor(final long nowNanos, final Duration duration) {
+            final long until = nowNanos + duration.toNanos();
+            if (!blocked || until - blockedUntilNanos > 0) {
+                blockedUntilNanos = until;
+                blocked = true;
+            }
+        }
+
+        synchronized long remaining() {
+            return remaining;
+        }
+    }
+
+    /**
+     * A token bucket which hands out reservations: taking from an empty bucket succeeds, and returns how long
+     * the caller has to wait for its turn.
+     */
+    private static final class Bucket {
+        private final double capacity;
+        private final double perNano;
+        private double available;
+        private long last;
+        private boolean started;
+
+        Bucket(final int capacity, final Duration period) {
+            this.capacity = capacity;
+            this.perNano = capacity / (double) period.toNanos();
+            this.available = capacity;
+        }
+
+        long take(final long now) {
+            if (started) {
+                available = Math.min(capacity, available + (now - last) * perNano);
+            }
+            started = true;
+            last = now;
+            available -= 1;
+            return available >= 0 ? 0 : (long) Math.ceil(-available / perNano);
+        }
+
+        long peek(final long now) {
+            final double next = (started ? Math.min(capacity, available + (now - last) * perNano) : available) - 1;
+            return next >= 0 ? 0 : (long) Math.ceil(-next / perNano);
+        }
+    }
+}
@@ -0,0 +1,780 @@
+package io.github.dmlloyd.im;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.dmlloyd.im.jira.JiraComment;
+import io.github.dmlloyd.im.jira.JiraIssue;
+import io.github.dmlloyd.im.jira.JiraSnapshot;
+import io.github.dmlloyd.im.jira.JiraUser;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+
+/**
+ * An embedded stand-in for Jira and GitHub, to measure migration throughput before a production run.
+ * <p>
+ * The simulator serves a fixed set of issues from the Jira search and issue endpoints, and accepts issues, comments
+ * and issue and comment updates on the GitHub REST endpoints of any repository, numbering them like GitHub does. The
+ * GraphQL endpoint serves the {@code createIssue} and {@code addComment} mutations and the repository and issue node
+ * id lookups of {@link GitHub.GraphQLClient}, and rejects a mutation whose body exceeds GitHub's limit while the
+ * others of the request still run, like GitHub does. GraphQL {@code user} lookups find the logins of the active Jira
+ * users, as if they were mapped one to one. Every response can be delayed, GitHub responses carry primary rate
+ * limit headers which are enforced per auth token, and a fraction of requests can be rejected by a secondary rate
+ * limit or fail with a server error. A GraphQL request counts against the primary rate limit once per mutation it
+ * holds, or once if it holds none, and each of its mutations can hit a secondary rate limit, which rejects the whole
+ * request. Requests are handled on virtual threads.
+ * <p>
+ * The migrator does not retry server errors, so any injected error stops a migration, like it would in production;
+ * this is useful to exercise resuming from the journal.
+ */
+public final class Simulator implements AutoCloseable {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Pattern KEY_AFTER = Pattern.compile("key > ([A-Za-z][\\w]*-\\d+)");
+    private static final Pattern USER_LOOKUP = Pattern.compile("(\\w+): user\\(login: \"([^\"]*)\"\\)");
+    private static final String REPOSITORY = "repository(owner: $owner, name: $name) {";
+    private static final Pattern ISSUE_LOOKUP = Pattern.compile("(\\w+): issue\\(number: (\\d+)\\) \\{ id \\}");
+    private static final Pattern MUTATION = Pattern.compile("(\\w+): (createIssue|addComment)\\(input: \\$(\\w+)\\)");
+    private static final int MAX_BODY_LENGTH = 65536;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Settings settings;
+    private final List<Entry> issues;
+    private final Map<String, Entry> issuesByKey;
+    private final Set<String> logins;
+    // racy but idempotent
+    private volatile List<Entry> issuesByKeyOrder;
+    private final JsonGeneratorFactory generators = Json.createGeneratorFactory(Map.of());
+    private final ConcurrentHashMap<String, AtomicInteger> issueNumbers = new ConcurrentHashMap<>();
+    private final AtomicLong commentIds = new AtomicLong(1_000_000);
+    private final ConcurrentHashMap<String, Quota> quotas = new ConcurrentHashMap<>();
+    private final Stats stats = new Stats();
+    private final long startNanos = System.nanoTime();
+
+    private Simulator(final List<Entry> issues, final Set<String> logins, final Settings settings) throws IOException {
+        this.settings = settings;
+        this.issues = issues;
+        this.logins = logins;
+        this.issuesByKey = new HashMap<>(issues.size() * 2);
+        for (Entry entry : issues) {
+            issuesByKey.put(entry.key(), entry);
+        }
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/rest/api/2/", this::handleJira);
+        server.createContext("/repos/", this::handleGitHub);
+        server.createContext("/graphql", this::handleGraphQL);
+        server.start();
+    }
+
+    /**
+     * Starts a simulator which serves the given issues.
+     *
+     * @param issues   the issues, in search order
+     * @param settings the settings
+     *
+     * @return the running simulator
+     *
+     * @throws IOException if the server could not be started
+     */
+    public static Simulator start(final List<JiraIssue> issues, final Settings settings) throws IOException {
+        final List<Entry> entries = new ArrayList<>(issues.size());
+        final Set<String> logins = new HashSet<>();
+        for (JiraIssue issue : issues) {
+            entries.add(new Entry(issue.id(), issue.updated(), () -> issue));
+            addLogin(logins, issue.reporter());
+            addLogin(logins, issue.assignee());
+            if (issue.comments() != null) {
+                for (JiraComment comment : issue.comments()) {
+                    addLogin(logins, comment.author());
+                }
+            }
+        }
+        return new Simulator(entries, logins, settings);
+    }
+
+    /**
+     * Starts a simulator which serves the issues of a snapshot, replaying a recorded project. Issues are decoded
+     * from the snapshot whenever they are requested.
+     *
+     * @param snapshot the snapshot
+     * @param settings the settings
+     *
+     * @return the running simulator
+     *
+     * @throws IOException if the server could not be started
+     */
+    public static Simulator start(final JiraSnapshot snapshot, final Settings settings) throws IOException {
+        final List<Entry> entries = new ArrayList<>(snapshot.size());
+        for (JiraSnapshot.Handle handle : snapshot.handles()) {
+            entries.add(new Entry(handle.key(), handle.updated(), handle::issue));
+        }
+        final Set<String> logins = new HashSet<>();
+        for (JiraUser user : snapshot.users()) {
+            addLogin(logins, user);
+        }
+        return new Simulator(entries, logins, settings);
+    }
+
+    private static void addLogin(final Set<String> logins, final JiraUser user) {
+        if (user != null && user.active() && user.name() != null) {
+            logins.add(user.name());
+        }
+    }
+
+    /**
+     * Generates a synthetic project. Descriptions and comments use common Jira markup, and many of them refer to
+     * other issues, so that the second pass has work to do.
+     *
+     * @param project  the project key
+     * @param count    the number of issues
+     * @param comments the average number of comments per issue
+     * @param seed     the seed of the random generator, so that projects can be reproduced
+     *
+     * @return the issues
+     */
+    public static List<JiraIssue> generate(final String project, final int count, final int comments, final long seed) {
+        final Random random = new Random(seed);
+        final JiraUser[] users = new JiraUser[Math.max(1, Math.min(200, count / 10))];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new JiraUser("user" + i, "user" + i, "User " + i, i % 10 != 0);
+        }
+        final String[] types = { "Bug", "Task", "Enhancement", "Feature Request" };
+        final ZonedDateTime start = ZonedDateTime.of(2015, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        final List<JiraIssue> issues = new ArrayList<>(count);
+        long nextCommentId = 10000;
+        for (int i = 1; i <= count; i++) {
+            final ZonedDateTime created = start.plusMinutes(i * 97L);
+            final Set<JiraComment> issueComments = new LinkedHashSet<>();
+            final int commentCount = comments == 0 ? 0 : random.nextInt(comments * 2 + 1);
+            for (int c = 0; c < commentCount; c++) {
+                final ZonedDateTime commentCreated = created.plusHours(c + 1L);
+                final JiraUser author = users[random.nextInt(users.length)];
+                issueComments.add(new JiraComment(Long.toString(nextCommentId++), author, author, commentCreated, commentCreated, text(random, project, count, 1 + random.nextInt(4))));
+            }
+            final ZonedDateTime updated = created.plusHours(commentCount + 1L);
+            issues.add(new JiraIssue(text(random, project, count, 2 + random.nextInt(8)), project + "-" + i, "Generated issue " + i,
+                types[random.nextInt(types.length)], null, random.nextInt(3) == 0 ? null : users[random.nextInt(users.length)],
+                users[random.nextInt(users.length)], created, updated, issueComments));
+        }
+        return issues;
+    }
+
+    private static String text(final Random random, final String project, final int count, final int paragraphs) {
+        final StringBuilder b = new StringBuilder(paragraphs * 200);
+        for (int p = 0; p < paragraphs; p++) {
+            switch (random.nextInt(6)) {
+                case 0 -> b.append("{code:java}\nfinal Object value = map.get(key);\nif (value == null) {\n    throw new IllegalStateException();\n}\n{code}");
+                case 1 -> b.append("* first item with *bold* text\n* second item with _emphasis_\n** a nested item");
+                case 2 -> b.append("See ").append(project).append('-').append(1 + random.nextInt(count)).append(" for the details.");
+                default -> b.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation ullamco laboris {{nisi}} ut aliquip ex ea commodo consequat.");
+            }
+            b.append("\n\n");
+        }
+        return b.toString();
+    }
+
+    /**
+     * {@return the base URL of the simulated Jira}
+     */
+    public URI jiraUrl() {
+        return baseUrl();
+    }
+
+    /**
+     * {@return the base URL of the simulated GitHub REST API}
+     */
+    public URI githubUrl() {
+        return baseUrl();
+    }
+
+    /**
+     * {@return the URL of the simulated GitHub GraphQL endpoint}
+     */
+    public URI graphqlUrl() {
+        return baseUrl().resolve("graphql");
+    }
+
+    private URI baseUrl() {
+        final InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/");
+    }
+
+    /**
+     * {@return the request counters}
+     */
+    public Stats stats() {
+        return stats;
+    }
+
+    /**
+     * {@return a summary of the requests served so far, and their rate}
+     */
+    public String report() {
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+        final long requests = stats.requests();
+        return String.format("Simulator served %d requests (%.1f/s) in %.1fs: %d Jira searches, %d Jira issues, %d issues created (%.1f/s), %d comments created, %d issues updated, %d comments updated; %d rate limited, %d throttled, %d failed",
+            Long.valueOf(requests), Double.valueOf(seconds > 0 ? requests / seconds : 0), Double.valueOf(seconds),
+            Long.valueOf(stats.searches.sum()), Long.valueOf(stats.issueReads.sum()),
+            Long.valueOf(stats.issuesCreated.sum()), Double.valueOf(seconds > 0 ? stats.issuesCreated.sum() / seconds : 0),
+            Long.valueOf(stats.commentsCreated.sum()), Long.valueOf(stats.issuesUpdated.sum()), Long.valueOf(stats.commentsUpdated.sum()),
+            Long.valueOf(stats.rateLimited.sum()), Long.valueOf(stats.throttled.sum()), Long.valueOf(stats.failed.sum()));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handleJira(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            delay();
+            if (injectError(exchange)) {
+                return;
+            }
+            final String path = exchange.getRequestURI().getPath();
+            final Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            if (path.equals("/rest/api/2/search")) {
+                stats.searches.increment();
+                search(exchange, query);
+            } else if (path.startsWith("/rest/api/2/issue/")) {
+                final Entry entry = issuesByKey.get(path.substring("/rest/api/2/issue/".length()));
+                if (entry == null) {
+                    respond(exchange, 404, null, g -> g.writeStartObject().writeStartArray("errorMessages").write("Issue Does Not Exist").writeEnd().writeEnd());
+                    return;
+                }
+                stats.issueReads.increment();
+                respond(exchange, 200, null, g -> writeIssue(g, entry.issue().get()));
+            } else {
+                respond(exchange, 404, null, g -> g.writeStartObject().writeEnd());
+            }
+        }
+    }
+
+    private void search(final HttpExchange exchange, final Map<String, String> query) throws IOException {
+        final int startAt = Integer.parseInt(query.getOrDefault("startAt", "0"));
+        final int maxResults = Math.min(MAX_PAGE_SIZE, Integer.parseInt(query.getOrDefault("maxResults", "50")));
+        // the whole issue is written whenever more than its key and update time is asked for
+        final boolean full = !Set.of("key", "updated").containsAll(Arrays.asList(query.getOrDefault("fields", "").split(",")));
+        // of the JQL, only the key order and key ranges of delta runs are supported
+        final String jql = query.getOrDefault("jql", "");
+        List<Entry> results = issues;
+        if (jql.contains("ORDER BY key ASC")) {
+            results = issuesByKeyOrder();
+            final Matcher after = KEY_AFTER.matcher(jql);
+            if (after.find()) {
+                final String key = after.group(1);
+                final List<Entry> sorted = results;
+                int from = 0;
+                while (from < sorted.size() && compareKeys(sorted.get(from).key(), key) <= 0) {
+                    from++;
+                }
+                results = sorted.subList(from, sorted.size());
+            }
+        }
+        final List<Entry> found = results;
+        final int end = Math.min(found.size(), startAt + maxResults);
+        respond(exchange, 200, null, g -> {
+            g.writeStartObject()
+                .write("startAt", startAt)
+                .write("maxResults", maxResults)
+                .write("total", found.size())
+                .writeStartArray("issues");
+            for (int i = startAt; i < end; i++) {
+                final Entry entry = found.get(i);
+                if (full) {
+                    writeIssue(g, entry.issue().get());
+                } else {
+                    g.writeStartObject().write("id", Integer.toString(i + 1)).write("key", entry.key()).writeStartObject("fields");
+                    writeDate(g, "updated", entry.updated());
+                    g.writeEnd().writeEnd();
+                }
+            }
+            g.writeEnd().writeEnd();
+        });
+    }
+
+    private List<Entry> issuesByKeyOrder() {
+        List<Entry> sorted = issuesByKeyOrder;
+        if (sorted == null) {
+            final List<Entry> copy = new ArrayList<>(issues);
+            copy.sort((a, b) -> compareKeys(a.key(), b.key()));
+            issuesByKeyOrder = sorted = List.copyOf(copy);
+        }
+        return sorted;
+    }
+
+    /**
+     * Compares issue keys like Jira does, by project and then by number.
+     */
+    private static int compareKeys(final String a, final String b) {
+        final int da = a.lastIndexOf('-');
+        final int db = b.lastIndexOf('-');
+        final int res = a.substring(0, Math.max(0, da)).compareTo(b.substring(0, Math.max(0, db)));
+        return res != 0 ? res : Long.compare(Long.parseLong(a.substring(da + 1)), Long.parseLong(b.substring(db + 1)));
+    }
+
+    private void handleGitHub(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            delay();
+            // repos/{owner}/{repo}/issues[/{number}[/comments]] or repos/{owner}/{repo}/issues/comments/{id}
+            final String[] segments = exchange.getRequestURI().getPath().split("/");
+            final String method = exchange.getRequestMethod();
+            if (segments.length < 5 || !segments[4].equals("issues")) {
+                respond(exchange, 404, null, g -> g.writeStartObject().write("message", "Not Found").writeEnd());
+                return;
+            }
+            final Map<String, String> headers = limit(exchange, 1);
+            if (headers == null || injectError(exchange)) {
+                return;
+            }
+            final String repo = segments[2] + "/" + segments[3];
+            if (segments.length == 5 && method.equals("POST")) {
+                final int number = issueNumbers.computeIfAbsent(repo, ignored -> new AtomicInteger()).incrementAndGet();
+                stats.issuesCreated.increment();
+                respond(exchange, 201, headers, g -> g.writeStartObject().write("number", number).writeEnd());
+            } else if (segments.length == 6 && method.equals("PATCH")) {
+                stats.issuesUpdated.increment();
+                respond(exchange, 200, headers, g -> g.writeStartObject().write("number", Integer.parseInt(segments[5])).writeEnd());
+            } else if (segments.length == 7 && segments[5].equals("comments") && method.equals("PATCH")) {
+                stats.commentsUpdated.increment();
+                respond(exchange, 200, headers, g -> g.writeStartObject().write("id", Long.parseLong(segments[6])).writeEnd());
+            } else if (segments.length == 7 && segments[6].equals("comments") && method.equals("POST")) {
+                final long id = commentIds.incrementAndGet();
+                stats.commentsCreated.increment();
+                respond(exchange, 201, headers, g -> g.writeStartObject().write("id", id).writeEnd());
+            } else {
+                respond(exchange, 404, headers, g -> g.writeStartObject().write("message", "Not Found").writeEnd());
+            }
+        }
+    }
+
+    private void handleGraphQL(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final JsonObject request;
+            try (JsonReader reader = Json.createReader(exchange.getRequestBody())) {
+                request = reader.readObject();
+            }
+            final String query = request.getString("query", "");
+            final JsonObject variables = request.get("variables") instanceof JsonObject o ? o : JsonValue.EMPTY_JSON_OBJECT;
+            delay();
+            final Map<String, String> headers = limit(exchange, (int) MUTATION.matcher(query).results().count());
+            if (headers == null || injectError(exchange)) {
+                return;
+            }
+            // like GitHub, a field which cannot be resolved is null, with an error naming its path
+            final JsonObjectBuilder data = Json.createObjectBuilder();
+            final JsonArrayBuilder errors = Json.createArrayBuilder();
+            final Matcher users = USER_LOOKUP.matcher(query);
+            while (users.find()) {
+                final String alias = users.group(1);
+                final String login = users.group(2);
+                if (logins.contains(login)) {
+                    data.add(alias, Json.createObjectBuilder().add("login", login));
+                } else {
+                    data.addNull(alias);
+                    errors.add(error("NOT_FOUND", "Could not resolve to a User with the login of '" + login + "'.", alias));
+                }
+            }
+            if (query.contains(REPOSITORY)) {
+                final String repo = variables.getString("owner", "") + "/" + variables.getString("name", "");
+                final JsonObjectBuilder repository = Json.createObjectBuilder();
+                if (query.contains(REPOSITORY + " id }")) {
+                    repository.add("id", "R:" + repo);
+                }
+                final Matcher lookups = ISSUE_LOOKUP.matcher(query);
+                while (lookups.find()) {
+                    final String alias = lookups.group(1);
+                    final int number = Integer.parseInt(lookups.group(2));
+                    // like the REST endpoints, any issue is taken to exist, so that runs can resume against a new simulator
+                    if (number >= 1) {
+                        repository.add(alias, Json.createObjectBuilder().add("id", issueNodeId(repo, number)));
+                    } else {
+                        repository.addNull(alias);
+                        errors.add(error("NOT_FOUND", "Could not resolve to an issue with the number of " + number + ".", "repository", alias));
+                    }
+                }
+                data.add("repository", repository);
+            }
+            final Matcher mutations = MUTATION.matcher(query);
+            while (mutations.find()) {
+                final String alias = mutations.group(1);
+                final JsonObject input = variables.get(mutations.group(3)) instanceof JsonObject o ? o : JsonValue.EMPTY_JSON_OBJECT;
+                final String failure = mutate(mutations.group(2), input, data, alias);
+                if (failure != null) {
+                    data.addNull(alias);
+                    errors.add(error(failure.startsWith("Could not resolve") ? "NOT_FOUND" : "UNPROCESSABLE", failure, alias));
+                }
+            }
+            final JsonObjectBuilder body = Json.createObjectBuilder().add("data", data);
+            final JsonArray errorArray = errors.build();
+            if (!errorArray.isEmpty()) {
+                body.add("errors", errorArray);
+            }
+            final JsonObject response = body.build();
+            respond(exchange, 200, headers, g -> g.write(response));
+        }
+    }
+
+    /**
+     * Takes a GitHub request from the quota of its auth token, once per write it holds, and rejects it like GitHub
+     * would if the quota is exhausted or any of its writes hits a secondary rate limit.
+     *
+     * @param writes the number of writes of the request, which is {@code 0} for a GraphQL query
+     *
+     * @return the rate limit headers of the response, or {@code null} if the request was rejected
+     */
+    private Map<String, String> limit(final HttpExchange exchange, final int writes) throws IOException {
+        final String token = exchange.getRequestHeaders().getFirst("Authorization");
+        final Quota quota = quotas.computeIfAbsent(token == null ? "" : token, ignored -> new Quota());
+        final Quota.Taken taken = quota.take(settings.rateLimit(), settings.rateLimitWindow(), Math.max(1, writes));
+        final Map<String, String> headers = Map.of(
+            "X-RateLimit-Limit", Integer.toString(settings.rateLimit()),
+            "X-RateLimit-Remaining", Long.toString(Math.max(0, taken.remaining())),
+            "X-RateLimit-Reset", Long.toString(taken.resetSeconds()));
+        if (taken.remaining() < 0) {
+            stats.rateLimited.increment();
+            respond(exchange, 403, headers, g -> g.writeStartObject().write("message", "API rate limit exceeded").writeEnd());
+            return null;
+        }
+        for (int i = 0; i < writes; i++) {
+            if (settings.throttleRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.throttleRate()) {
+                stats.throttled.increment();
+                final Map<String, String> throttled = new HashMap<>(headers);
+                throttled.put("Retry-After", "1");
+                respond(exchange, 429, throttled, g -> g.writeStartObject().write("message", "You have exceeded a secondary rate limit").writeEnd());
+                return null;
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Runs a {@code createIssue} or {@code addComment} mutation, adding its result to the data.
+     *
+     * @return {@code null} if the mutation succeeded, or the message of its error
+     */
+    private String mutate(final String mutation, final JsonObject input, final JsonObjectBuilder data, final String alias) {
+        if (input.getString("body", "").length() > MAX_BODY_LENGTH) {
+            return "Body is too long (maximum is " + MAX_BODY_LENGTH + " characters)";
+        }
+        if (mutation.equals("createIssue")) {
+            final String repositoryId = input.getString("repositoryId", "");
+            if (!repositoryId.startsWith("R:")) {
+                return "Could not resolve to a node with the global id of '" + repositoryId + "'";
+            }
+            final String repo = repositoryId.substring(2);
+            final int number = issueNumbers.computeIfAbsent(repo, ignored -> new AtomicInteger()).incrementAndGet();
+            stats.issuesCreated.increment();
+            data.add(alias, Json.createObjectBuilder().add("issue", Json.createObjectBuilder().add("id", issueNodeId(repo, number)).add("number", number)));
+        } else {
+            final String subjectId = input.getString("subjectId", "");
+            final int separator = subjectId.lastIndexOf('#');
+            final int number = separator == -1 ? 0 : Integer.parseInt(subjectId.substring(separator + 1));
+            if (!subjectId.startsWith("I:") || number < 1) {
+                return "Could not resolve to a node with the global id of '" + subjectId + "'";
+            }
+            final long id = commentIds.incrementAndGet();
+            stats.commentsCreated.increment();
+            data.add(alias, Json.createObjectBuilder().add("commentEdge", Json.createObjectBuilder().add("node", Json.createObjectBuilder().add("databaseId", id))));
+        }
+        return null;
+    }
+
+    private static String issueNodeId(final String repo, final int number) {
+        return "I:" + repo + "#" + number;
+    }
+
+    private static JsonObject error(final String type, final String message, final String... path) {
+        return Json.createObjectBuilder().add("type", type).add("message", message).add("path", Json.createArrayBuilder(List.of(path))).build();
+    }
+
+    private void delay() {
+        final long jitter = settings.jitter().toNanos();
+        final long nanos = settings.latency().toNanos() + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+        if (nanos > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(nanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean injectError(final HttpExchange exchange) throws IOException {
+        if (settings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+            stats.failed.increment();
+            respond(exchange, 502, null, g -> g.writeStartObject().write("message", "Server Error").writeEnd());
+            return true;
+        }
+        return false;
+    }
+
+    private void respond(final HttpExchange exchange, final int status, final Map<String, String> headers, final Body body) throws IOException {
+        stats.requests.increment();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = generators.createGenerator(bytes, StandardCharsets.UTF_8)) {
+            body.write(generator);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (headers != null) {
+            headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+        }
+        exchange.sendResponseHeaders(status, bytes.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * Writes the issue as Jira's REST API does, with the fields which the migrator requests.
+     */
+    private static void writeIssue(final JsonGenerator g, final JiraIssue issue) {
+        g.writeStartObject()
+            .write("id", Integer.toString(issue.id().hashCode() & 0x7fffffff))
+            .write("key", issue.id())
+            .writeStartObject("fields");
+        writeString(g, "summary", issue.summary());
+        writeString(g, "description", issue.description());
+        if (issue.type() == null) {
+            g.writeNull("issuetype");
+        } else {
+            g.writeStartObject("issuetype").write("name", issue.type()).writeEnd();
+        }
+        writeUser(g, "assignee", issue.assignee());
+        writeUser(g, "reporter", issue.reporter());
+        writeUser(g, "creator", issue.reporter());
+        writeDate(g, "created", issue.created());
+        writeDate(g, "updated", issue.updated());
+        g.writeStartObject("comment").writeStartArray("comments");
+        if (issue.comments() != null) {
+            for (JiraComment comment : issue.comments()) {
+                g.writeStartObject();
+                writeString(g, "id", comment.id());
+                writeUser(g, "author", comment.author());
+                writeUser(g, "updateAuthor", comment.updateAuthor());
+                writeDate(g, "created", comment.created());
+                writeDate(g, "updated", comment.updated());
+                writeString(g, "body", comment.body());
+                g.writeEnd();
+            }
+        }
+        g.writeEnd().writeEnd();
+        g.writeEnd().writeEnd();
+    }
+
+    private static void writeUser(final JsonGenerator g, final String name, final JiraUser user) {
+        if (user == null) {
+            g.writeNull(name);
+            return;
+        }
+        g.writeStartObject(name);
+        writeString(g, "key", user.key());
+        writeString(g, "name", user.name());
+        writeString(g, "displayName", user.displayName());
+        g.write("active", user.active());
+        g.writeEnd();
+    }
+
+    private static void writeDate(final JsonGenerator g, final String name, final ZonedDateTime date) {
+        writeString(g, name, date == null ? null : DATE_FORMAT.format(date));
+    }
+
+    private static void writeString(final JsonGenerator g, final String name, final String value) {
+        if (value == null) {
+            g.writeNull(name);
+        } else {
+            g.write(name, value);
+        }
+    }
+
+    private static Map<String, String> query(final String rawQuery) {
+        final Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                final int eq = pair.indexOf('=');
+                if (eq != -1) {
+                    query.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * The simulator settings.
+     *
+     * @param latency         the minimum delay of every response
+     * @param jitter          the maximum random delay added to the latency
+     * @param rateLimit       the number of GitHub requests allowed per auth token and rate limit window
+     * @param rateLimitWindow the rate limit window
+     * @param throttleRate    the fraction of GitHub requests rejected by a secondary rate limit, with a
+     *                        {@code Retry-After} of one second
+     * @param errorRate       the fraction of requests which fail with a server error
+     */
+    public record Settings(Duration latency, Duration jitter, int rateLimit, Duration rateLimitWindow, double throttleRate, double errorRate) {
+        public Settings {
+            if (latency.isNegative() || jitter.isNegative() || rateLimit < 1 || rateLimitWindow.isNegative() || rateLimitWindow.isZero()) {
+                throw new IllegalArgumentException("Invalid simulator settings");
+            }
+            if (throttleRate < 0 || throttleRate > 1 || errorRate < 0 || errorRate > 1) {
+                throw new IllegalArgumentException("Throttle and error rates must be between 0 and 1");
+            }
+        }
+
+        /**
+         * {@return the default settings, with a typical latency and GitHub's primary rate limit, and no errors}
+         */
+        public static Settings defaults() {
+            return new Settings(Duration.ofMillis(50), Duration.ofMillis(50), 5000, Duration.ofHours(1), 0, 0);
+        }
+    }
+
+    /**
+     * The counters of the requests served by a simulator.
+     */
+    public static final class Stats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder searches = new LongAdder();
+        private final LongAdder issueReads = new LongAdder();
+        private final LongAdder issuesCreated = new LongAdder();
+        private final LongAdder commentsCreated = new LongAdder();
+        private final LongAdder issuesUpdated = new LongAdder();
+        private final LongAdder commentsUpdated = new LongAdder();
+        private final LongAdder rateLimited = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Stats() {
+        }
+
+        /**
+         * {@return the number of requests served}
+         */
+        public long requests() {
+            return requests.sum();
+        }
+
+        /**
+         * {@return the number of GitHub issues created}
+         */
+        public long issuesCreated() {
+            return issuesCreated.sum();
+        }
+
+        /**
+         * {@return the number of GitHub comments created}
+         */
+        public long commentsCreated() {
+            return commentsCreated.sum();
+        }
+
+        /**
+         * {@return the number of GitHub issues updated}
+         */
+        public long issuesUpdated() {
+            return issuesUpdated.sum();
+        }
+
+        /**
+         * {@return the number of GitHub comments updated}
+         */
+        public long commentsUpdated() {
+            return commentsUpdated.sum();
+        }
+
+        /**
+         * {@return the number of requests rejected by the primary or a secondary rate limit}
+         */
+        public long rejected() {
+            return rateLimited.sum() + throttled.sum();
+        }
+
+        /**
+         * {@return the number of requests which failed with an injected server error}
+         */
+        public long failed() {
+            return failed.sum();
+        }
+    }
+
+    /**
+     * The primary rate limit quota of one auth token.
+     */
+    private static final class Quota {
+        private long resetMillis;
+        private long remaining;
+
+        synchronized Taken take(final int limit, final Duration window, final int cost) {
+            final long now = System.currentTimeMillis();
+            if (now >= resetMillis) {
+                resetMillis = now + window.toMillis();
+                remaining = limit;
+            }
+            remaining = Math.max(-1, remaining - cost);
+            // round up, so that clients never retry before the reset
+            return new Taken(remaining, (resetMillis + 999) / 1000);
+        }
+
+        /**
+         * The outcome of taking the cost of a request from the quota.
+         *
+         * @param remaining    the remaining requests, which is negative if the quota could not cover the cost
+         * @param resetSeconds the time the quota is reset, in epoch seconds
+         */
+        record Taken(long remaining, long resetSeconds) {
+        }
+    }
+
+    private record Entry(String key, ZonedDateTime updated, Supplier<JiraIssue> issue) {
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonGenerator generator);
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.dmlloyd.im;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The auth tokens which GitHub writes are sent with.
+ * <p>
+ * A write which can be attributed to a GitHub user who has a token of their own is sent with that token, so that it
+ * shows up as written by that user. Every other write is spread across the bot tokens: each goes to the bot token
+ * whose next content creation slot comes first, and among those to the one with the fewest writes waiting for a slot,
+ * the most remaining primary quota, and the fewest writes so far. Since the {@link RateLimitScheduler} paces every
+ * token on its own, the write throughput grows with the number of bot tokens.
+ * <p>
+ * Each token also has its own health. A token which is rejected as unauthorized is disabled for good, and the writes
+ * of its user fall back to the bot tokens. A token whose requests fail with a server or I/O error is backed off
+ * exponentially until a request succeeds again.
+ * <p>
+ * Migrations which share tokens each use their own {@linkplain #lane(String) lane} of one pool, which shares the
+ * health of the tokens. Instances are safe for concurrent use.
+ */
+public final class TokenPool {
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final Map<String, String> userTokens;
+    private final List<String> botTokens;
+    private final RateLimitScheduler scheduler;
+    // guarded by itself
+    private final Map<String, Health> health;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param userTokens the tokens of the GitHub users who have one, by login
+     * @param botTokens the tokens which unattributed writes are spread across
+     * @param scheduler the scheduler which paces the requests of each token
+     */
+    public TokenPool(final Map<String, String> userTokens, final List<String> botTokens, final RateLimitScheduler scheduler) {
+        this.userTokens = Map.copyOf(userTokens);
+        this.botTokens = List.copyOf(botTokens);
+        this.scheduler = scheduler;
+        this.health = new HashMap<>();
+    }
+
+    private TokenPool(final TokenPool shared, final RateLimitScheduler scheduler) {
+        this.userTokens = shared.userTokens;
+        this.botTokens = shared.botTokens;
+        this.scheduler = scheduler;
+        this.health = shared.health;
+    }
+
+    /**
+     * Returns a view of this pool which shares its tokens and their health, and whose requests are paced by the
+     * given {@linkplain RateLimitScheduler#lane(String) lane} of the scheduler.
+     *
+     * @param name the lane name, such as the name of a migration
+     *
+     * @return the lane
+     */
+    public TokenPool lane(final String name) {
+        return new TokenPool(this, scheduler.lane(name));
+    }
+
+    /**
+     * {@return the scheduler which paces the requests of each token}
+     */
+    public RateLimitScheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Selects the token for a request by the given user, without reserving a slot for it.
+     *
+     * @param login the GitHub login of the user, or {@code null} if the request is not attributed to anyone
+     *
+     * @return the token
+     *
+     * @throws IOException if there is no token which can be used
+     */
+    public String select(final String login) throws IOException {
+        synchronized (health) {
+            return choose(login, System.nanoTime());
+        }
+    }
+
+    /**
+     * Blocks until a slot for a content-creating request by the given user is available.
+     *
+     * @param login the GitHub login of the user, or {@code null} if the request is not attributed to anyone
+     *
+     * @return the token to send the request with
+     *
+     * @throws IOException if there is no token which can be used
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public String acquire(final String login) throws IOException, InterruptedException {
+        final String token;
+        final Duration backoff;
+        synchronized (health) {
+            final long now = System.nanoTime();
+            token = choose(login, now);
+            final Health h = health(token);
+            h.waiting++;
+            h.used++;
+            backoff = Duration.ofNanos(Math.max(0, h.backoffUntil - now));
+        }
+        try {
+            if (!backoff.isZero()) {
+                Thread.sleep(backoff);
+            }
+            scheduler.acquire(token);
+        } finally {
+            synchronized (health) {
+                health(token).waiting--;
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Records the outcome of a request. A {@code 401} disables the token, a server error backs it off, and any other
+     * status other than a rate limit rejection ends its backoff.
+     *
+     * @param token the token the request was sent with
+     * @param status the response status
+     *
+     * @return {@code true} if the token was rejected, so that the request should be retried with another token, or
+     *      {@code false} otherwise
+     */
+    public boolean completed(final String token, final int status) {
+        synchronized (health) {
+            final Health h = health(token);
+            if (status == 401) {
+                h.disabled = true;
+                return true;
+            } else if (status >= 500) {
+                h.backOff(System.nanoTime());
+            } else if (status != 403 && status != 429) {
+                h.failures = 0;
+                h.backoffUntil = System.nanoTime();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Records that a request failed without a response, and backs off its token.
+     *
+     * @param token the token the request was sent with
+     */
+    public void failed(final String token) {
+        synchronized (health) {
+            health(token).backOff(System.nanoTime());
+        }
+    }
+
+    private String choose(final String login, final long now) throws IOException {
+        final String userToken = login == null ? null : userTokens.get(login);
+        if (userToken != null && !health(userToken).disabled) {
+            return userToken;
+        }
+        String best = null;
+        long bestReady = 0;
+        int bestWaiting = 0;
+        long bestRemaining = 0;
+        long bestUsed = 0;
+        for (String token : botTokens) {
+            final Health h = health(token);
+            if (h.disabled) {
+                continue;
+            }
+            final long ready = Math.max(scheduler.availableIn(token).toNanos(), h.backoffUntil - now);
+            final long remaining = scheduler.remaining(token);
+            // an unused token has its whole quota left
+            final long left = remaining == -1 ? Long.MAX_VALUE : remaining;
+            if (best == null || ready < bestReady || ready == bestReady && (h.waiting < bestWaiting
+                || h.waiting == bestWaiting && (left > bestRemaining || left == bestRemaining && h.used < bestUsed))) {
+                best = token;
+                bestReady = ready;
+                bestWaiting = h.waiting;
+                bestRemaining = left;
+                bestUsed = h.used;
+            }
+        }
+        if (best == null) {
+            throw new IOException(botTokens.isEmpty() ? "No GitHub token given" : "Every GitHub token was rejected as unauthorized");
+        }
+        return best;
+    }
+
+    private Health health(final String token) {
+        return health.computeIfAbsent(token, ignored -> new Health());
+    }
+
+    private static final class Health {
+        int failures;
+        long backoffUntil = System.nanoTime();
+        int waiting;
+        long used;
+        boolean disabled;
+
+        void backOff(final long now) {
+            final long backoff = Math.min(MAX_BACKOFF.toNanos(), MIN_BACKOFF.toNanos() << Math.min(failures, 20));
+            failures++;
+            backoffUntil = now + backoff;
+        }
+    }
+}
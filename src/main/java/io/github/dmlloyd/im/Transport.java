@@ -0,0 +1,202 @@
+package io.github.dmlloyd.im;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The HTTP transport shared by the Jira and GitHub clients: one {@link HttpClient}, so that connections are pooled
+ * and HTTP/2 streams multiplexed across both, with a virtual-thread executor for response handling.
+ * <p>
+ * Requests built by {@link #newRequest(URI)} ask for compressed responses and carry the request timeout. Compressed
+ * response bodies are decompressed as they are read by the body handlers of this class, so callers always see the
+ * plain content.
+ */
+public final class Transport implements AutoCloseable {
+    /**
+     * The default connect timeout.
+     */
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    /**
+     * The default request timeout, which limits how long to wait for the response headers.
+     */
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final Duration requestTimeout;
+
+    /**
+     * Creates a new transport with HTTP/2 and the default timeouts.
+     */
+    public Transport() {
+        this(HttpClient.Version.HTTP_2, DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Creates a new transport.
+     *
+     * @param version        the preferred HTTP version; HTTP/2 falls back to HTTP/1.1 for servers which lack it
+     * @param connectTimeout the connect timeout
+     * @param requestTimeout the request timeout, or {@code null} for none
+     */
+    public Transport(final HttpClient.Version version, final Duration connectTimeout, final Duration requestTimeout) {
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+            .version(version)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * {@return the HTTP client}
+     */
+    public HttpClient client() {
+        return client;
+    }
+
+    /**
+     * Creates a request builder which asks for a compressed response and has the request timeout.
+     *
+     * @param uri the request URI
+     *
+     * @return the request builder
+     */
+    public HttpRequest.Builder newRequest(final URI uri) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(uri).setHeader("Accept-Encoding", ACCEPT_ENCODING);
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        return builder;
+    }
+
+    /**
+     * Returns a body handler which provides the decompressed body as a stream. Decompression only starts when the
+     * stream is first read, so no HTTP client thread is ever blocked on it.
+     *
+     * @return the body handler
+     */
+    public static HttpResponse.BodyHandler<InputStream> ofInputStream() {
+        return info -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(), in -> new DecodingInputStream(info.headers(), in));
+    }
+
+    /**
+     * Decompresses a response body which was read completely.
+     *
+     * @param headers the response headers
+     * @param body    the body as received
+     *
+     * @return the decompressed body
+     */
+    public static byte[] decode(final HttpHeaders headers, final byte[] body) {
+        if (body.length == 0 || contentEncoding(headers) == null) {
+            return body;
+        }
+        try (InputStream in = decoder(headers, new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentEncoding(final HttpHeaders headers) {
+        final String encoding = headers.firstValue("Content-Encoding").orElse("identity").trim();
+        return encoding.equalsIgnoreCase("identity") ? null : encoding;
+    }
+
+    private static InputStream decoder(final HttpHeaders headers, final InputStream in) throws IOException {
+        final String encoding = contentEncoding(headers);
+        if (encoding == null) {
+            return in;
+        } else if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            return new GZIPInputStream(in, 8192);
+        } else if (encoding.equalsIgnoreCase("deflate")) {
+            return new InflaterInputStream(in);
+        } else {
+            in.close();
+            throw new IOException("Unsupported content encoding " + encoding);
+        }
+    }
+
+    /**
+     * Closes the client, waiting a bounded time for requests in progress. Exchanges which are still open after that,
+     * such as those of a failed migration which never read their response, are aborted.
+     */
+    @Override
+    public void close() {
+        client.shutdown();
+        try {
+            if (!client.awaitTermination(CLOSE_TIMEOUT)) {
+                client.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            client.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor.close();
+    }
+
+    /**
+     * Creates the decoder on the first read, since reading a gzip header blocks until the body arrives.
+     */
+    private static final class DecodingInputStream extends InputStream {
+        private final HttpHeaders headers;
+        private InputStream in;
+        private boolean decoding;
+
+        DecodingInputStream(final HttpHeaders headers, final InputStream in) {
+            this.headers = headers;
+            this.in = in;
+        }
+
+        private InputStream in() throws IOException {
+            if (!decoding) {
+                decoding = true;
+                in = decoder(headers, in);
+            }
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return in().read(b, off, len);
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            return in().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoding ? in.available() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
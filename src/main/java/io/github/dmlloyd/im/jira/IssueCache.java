@@ -0,0 +1,155 @@
+package io.github.dmlloyd.im.jira;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZonedDateTime;
+import java.util.Properties;
+
+/**
+ * An on-disk cache of Jira issue JSON, keyed by issue key. Alongside each {@code KEY.json} file, a
+ * {@code KEY.properties} file holds the response's {@code ETag} and {@code Last-Modified} headers and the issue's
+ * {@code updated} timestamp, which are used to avoid downloading issues which have not changed.
+ * <p>
+ * Each key is only ever written by one thread at a time, so no locking is done.
+ */
+public final class IssueCache {
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String UPDATED = "updated";
+
+    private final Path dir;
+
+    /**
+     * Creates a new cache, creating the directory if needed.
+     *
+     * @param dir the cache directory
+     *
+     * @throws IOException if the directory could not be created
+     */
+    public IssueCache(final Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    /**
+     * Returns the cache directory.
+     *
+     * @return the cache directory
+     */
+    public Path dir() {
+        return dir;
+    }
+
+    /**
+     * Looks up the cached copy of an issue.
+     *
+     * @param key the issue key
+     *
+     * @return the cache entry, or {@code null} if the issue is not cached
+     *
+     * @throws IOException if an error occurs reading the entry
+     */
+    public Entry get(final String key) throws IOException {
+        final Path json = jsonFile(key);
+        final Path meta = metaFile(key);
+        if (Files.notExists(json) || Files.notExists(meta)) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        final String updated = properties.getProperty(UPDATED);
+        return new Entry(json, properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED),
+                updated == null ? Long.MIN_VALUE : Long.parseLong(updated));
+    }
+
+    /**
+     * Stores the body of an issue response in the cache.
+     *
+     * @param key     the issue key
+     * @param body    the response body
+     * @param headers the response headers
+     * @param updated the issue's {@code updated} timestamp, or {@code null} if unknown
+     *
+     * @return the cache entry
+     *
+     * @throws IOException if an error occurs writing the entry
+     */
+    public Entry put(final String key, final InputStream body, final HttpHeaders headers, final ZonedDateTime updated) throws IOException {
+        final Path json = jsonFile(key);
+        final Path tmp = dir.resolve(key + ".json.tmp");
+        Files.copy(body, tmp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmp, json, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        final Entry entry = new Entry(json, headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null),
+                updated == null ? Long.MIN_VALUE : updated.toInstant().toEpochMilli());
+        final Properties properties = new Properties();
+        if (entry.etag() != null) {
+            properties.setProperty(ETAG, entry.etag());
+        }
+        if (entry.lastModified() != null) {
+            properties.setProperty(LAST_MODIFIED, entry.lastModified());
+        }
+        properties.setProperty(UPDATED, Long.toString(entry.updated()));
+        try (OutputStream out = Files.newOutputStream(metaFile(key))) {
+            properties.store(out, null);
+        }
+        return entry;
+    }
+
+    private Path jsonFile(final String key) {
+        return dir.resolve(key + ".json");
+    }
+
+    private Path metaFile(final String key) {
+        return dir.resolve(key + ".properties");
+    }
+
+    /**
+     * A cached issue.
+     *
+     * @param file         the cached issue JSON
+     * @param etag         the {@code ETag} of the response, or {@code null} if there was none
+     * @param lastModified the {@code Last-Modified} date of the response, or {@code null} if there was none
+     * @param updated      the issue's {@code updated} timestamp in epoch milliseconds, or {@link Long#MIN_VALUE}
+     *                     if unknown
+     */
+    public record Entry(Path file, String etag, String lastModified, long updated) {
+
+        /**
+         * Determines whether the cached copy is known to be current without asking Jira.
+         *
+         * @param updated the issue's {@code updated} timestamp according to the search, or {@code null} if unknown
+         *
+         * @return {@code true} if the cached copy is current
+         */
+        public boolean isCurrent(final ZonedDateTime updated) {
+            return updated != null && this.updated != Long.MIN_VALUE && this.updated >= updated.toInstant().toEpochMilli();
+        }
+
+        /**
+         * Adds the conditional request headers for this entry to the request.
+         *
+         * @param builder the request builder
+         *
+         * @return the request builder
+         */
+        public HttpRequest.Builder addConditions(final HttpRequest.Builder builder) {
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            return builder;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.time.ZonedDateTime;
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public record JiraComment(
+        String id,
         JiraUser author,
         JiraUser updateAuthor,
         ZonedDateTime created,
@@ -1,6 +1,7 @@
 package io.github.dmlloyd.im.jira;
 
 import java.time.ZonedDateTime;
+import java.util.Comparator;
 import java.util.Set;
 
 import io.github.dmlloyd.im.Comment;
@@ -26,17 +27,30 @@ public record JiraIssue(
 ) {
 
     /**
-     * Converts the Jira issue into an {@link Issue}.
+     * Converts the Jira issue into an {@link Issue}, mapping users with the {@linkplain JiraUserRegistry#shared()
+     * shared registry}.
      *
      * @return the new issue
      */
     public Issue toIssue() {
+        return toIssue(JiraUserRegistry.shared());
+    }
+
+    /**
+     * Converts the Jira issue into an {@link Issue}. Comments are ordered by their creation time, and identified by
+     * their Jira comment id, or by their creation time and author if they have none.
+     *
+     * @param registry the registry which maps the users to GitHub logins
+     *
+     * @return the new issue
+     */
+    public Issue toIssue(final JiraUserRegistry registry) {
         return new Issue(
                 id(),
                 summary(),
                 description(),
-                Mappers.jiraUserMapper().apply(reporter()),
-                Mappers.jiraUserMapper().apply(assignee()),
+                registry.login(reporter()),
+                registry.login(assignee()),
                 Status.OPEN,
                 null,
                 created(),
@@ -44,8 +58,17 @@ public record JiraIssue(
                 null,
                 comments()
                         .stream()
-                        .map(c -> new Comment(Mappers.jiraUserMapper().apply(c.author()), c.created(), c.body()))
+                        .sorted(Comparator.comparing(JiraComment::created, Comparator.nullsLast(Comparator.naturalOrder())))
+                        .map(c -> new Comment(commentId(c), registry.login(c.author()), c.created(), c.body()))
                         .toList()
         );
     }
+
+    private static String commentId(final JiraComment comment) {
+        if (comment.id() != null) {
+            return comment.id();
+        }
+        final String created = comment.created() == null ? "" : Long.toString(comment.created().toInstant().toEpochMilli());
+        return "@" + created + "/" + (comment.author() == null ? "" : comment.author().name());
+    }
 }
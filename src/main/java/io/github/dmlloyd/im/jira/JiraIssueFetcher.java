@@ -2,18 +2,41 @@ package io.github.dmlloyd.im.jira;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import io.github.dmlloyd.im.FairScheduler;
+import io.github.dmlloyd.im.HttpRequestEvent;
+import io.github.dmlloyd.im.Metrics;
+import io.github.dmlloyd.im.Transport;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 import jakarta.json.bind.JsonbConfig;
@@ -24,62 +47,196 @@ import jakarta.json.bind.JsonbConfig;
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public class JiraIssueFetcher implements AutoCloseable {
+    /**
+     * The default number of issue keys to request per search page. Jira may cap this server-side, in which case
+     * paging simply takes more requests.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    /**
+     * The default maximum number of issue requests in flight at once.
+     */
+    public static final int DEFAULT_CONCURRENCY = 8;
+    /**
+     * The default number of full issues to request per search page in bulk search mode.
+     */
+    public static final int DEFAULT_BULK_PAGE_SIZE = 100;
 
-    private final HttpClient client;
+    /**
+     * The fields requested when searching for issue keys only.
+     */
+    private static final String KEY_FIELDS = "key,updated";
+    /**
+     * The fields requested in bulk search mode; these are exactly the fields bound by {@link JiraIssueParser.IssueField}.
+     */
+    private static final String ISSUE_FIELDS = "description,summary,issuetype,assignee,reporter,creator,created,updated,comment";
+    /**
+     * The fields requested when collecting the users of the issues.
+     */
+    private static final String USER_FIELDS = "assignee,reporter,comment";
+
+    private final Transport transport;
+    private final FairScheduler.Lane requests;
     private final Jsonb jsonb;
     private final String projectId;
     private final String baseUri;
     private final JiraIssueParser parser;
+    private final int pageSize;
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final boolean bulkSearch;
+    private final SyncCheckpoint checkpoint;
+    private final IssueCache cache;
+    private final Metrics metrics;
+    private final Metrics.Stage fetchStage;
+    private final Metrics.Stage parseStage;
 
     /**
      * Creates a new issue fetcher.
      *
-     * @param projectId the Jira project id
-     * @param baseUri   the base URI for the Jira instance
+     * @param projectId  the Jira project id
+     * @param baseUri    the base URI for the Jira instance
+     * @param settings   the search and request settings
+     * @param checkpoint the checkpoint of a previous run, used to fetch only the issues which changed since
+     * @param metrics    the metrics to record requests, parsing and the number of issues found in
+     * @param transport  the HTTP transport, which is not closed with the fetcher
+     * @param requests   the lane of the scheduler every Jira request has to get a permit from, or {@code null} to
+     *                   send requests without one
      */
-    public JiraIssueFetcher(final String projectId, final String baseUri) {
-        client = HttpClient.newHttpClient();
+    public JiraIssueFetcher(final String projectId, final String baseUri, final Settings settings, final SyncCheckpoint checkpoint, final Metrics metrics, final Transport transport, final FairScheduler.Lane requests) {
+        this.transport = transport;
+        this.requests = requests;
         jsonb = JsonbBuilder.create(new JsonbConfig().
                 setProperty(JsonbConfig.DATE_FORMAT, "yyyy-MM-dd'T'HH:mm:ss.SSSZ"));
         this.projectId = projectId;
         this.baseUri = baseUri;
         this.parser = new JiraIssueParser(jsonb);
+        this.pageSize = settings.pageSize();
+        this.concurrency = settings.concurrency();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.bulkSearch = settings.bulkSearch();
+        this.checkpoint = checkpoint;
+        this.cache = settings.cache();
+        this.metrics = metrics;
+        this.fetchStage = metrics.stage(Metrics.FETCH);
+        this.parseStage = metrics.stage(Metrics.PARSE);
     }
 
     /**
      * Retrieves the Jira issues and holds them in memory.
      *
-     * @return a future which completes when all the issues have been processed
+     * @return a future of the issues, in search order, which completes when all the issues have been processed
      */
     public CompletableFuture<Set<JiraIssue>> fetch() {
-        final CompletableFuture<Set<JiraIssue>> cf = new CompletableFuture<>();
-        getIssues().whenComplete((result, ex) -> {
-            if (ex != null) {
-                cf.completeExceptionally(ex);
-            } else {
-                final Set<JiraIssue> processed = new LinkedHashSet<>();
-                for (IssueId issue : result.issues()) {
-                    final HttpRequest issueRequest = HttpRequest.newBuilder(createIssueUri(issue.key()))
-                            .header("Accept", "application/json")
-                            .GET()
-                            .build();
-                    try {
-                        final var issueResponse = client.send(issueRequest, HttpResponse.BodyHandlers.ofInputStream());
-                        if (issueResponse.statusCode() != 200) {
-                            cf.completeExceptionally(new RuntimeException(String.format("Failed fetch issue %s from %s ", issue.key(), issueRequest.uri())));
-                            return;
-                        }
-                        processed.add(parser.parse(issueResponse.body()));
-                    } catch (IOException | InterruptedException e) {
-                        cf.completeExceptionally(e);
-                        return;
+        final Set<JiraIssue> processed = new LinkedHashSet<>();
+        return forEachJiraIssue(processed::add).thenApply(ignored -> Collections.unmodifiableSet(processed));
+    }
+
+    /**
+     * Collects the users of the Jira issues, with a search for their user fields only. The search is recorded in the
+     * metrics like any other, so it should be given metrics of its own.
+     *
+     * @return a future of the reporters, assignees and comment authors of the issues
+     */
+    public CompletableFuture<Set<JiraUser>> users() {
+        final Set<JiraUser> users = new LinkedHashSet<>();
+        return getIssues(SearchResult.class, USER_FIELDS, page -> {
+            for (JiraIssueParser.IssueResult issue : page.issues()) {
+                final JiraIssueParser.IssueField fields = issue.fields();
+                addUser(users, fields.reporter());
+                addUser(users, fields.assignee());
+                if (fields.comment() != null && fields.comment().comments() != null) {
+                    for (JiraComment comment : fields.comment().comments()) {
+                        addUser(users, comment.author());
                     }
                 }
-                cf.complete(Set.copyOf(processed));
+            }
+        }).thenApply(ignored -> Collections.unmodifiableSet(users));
+    }
 
+    private static void addUser(final Set<JiraUser> users, final JiraUser user) {
+        if (user != null) {
+            users.add(user);
+        }
+    }
+
+    /**
+     * Retrieves the Jira issues into a snapshot file, which replaces the file once every issue was written.
+     *
+     * @param file the snapshot file
+     *
+     * @return a future of the number of issues written
+     */
+    public CompletableFuture<Integer> snapshot(final Path file) {
+        final JiraSnapshot.Writer writer;
+        try {
+            writer = JiraSnapshot.create(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        return forEachJiraIssue(issue -> {
+            try {
+                if (writer.add(issue)) {
+                    count.incrementAndGet();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }).handle((ignored, ex) -> {
+            try {
+                if (ex == null) {
+                    writer.close();
+                    return Integer.valueOf(count.get());
+                }
+                writer.abort();
+            } catch (IOException e) {
+                if (ex == null) {
+                    throw new UncheckedIOException(e);
+                }
+                ex.addSuppressed(e);
+            }
+            throw ex instanceof CompletionException ce ? ce : new CompletionException(ex);
         });
-        return cf;
+    }
+
+    /**
+     * Returns a publisher of the Jira issues, in search order. Each subscription starts its own fetch, which is
+     * throttled by the subscriber's demand: at most {@code bufferSize} issues are held for the subscriber, in
+     * addition to the requests in flight. Cancelling the subscription stops the fetch.
+     *
+     * @param bufferSize the maximum number of issues to buffer ahead of the subscriber's demand
+     *
+     * @return the issue publisher
+     */
+    public Flow.Publisher<JiraIssue> publish(final int bufferSize) {
+        return subscriber -> {
+            final SubmissionPublisher<JiraIssue> publisher = new SubmissionPublisher<>(executor, bufferSize);
+            publisher.subscribe(subscriber);
+            forEachJiraIssue(issue -> {
+                if (publisher.getNumberOfSubscribers() == 0) {
+                    throw new CancellationException("Subscription was cancelled");
+                }
+                // blocks while the subscriber's buffer is full
+                publisher.submit(issue);
+            }).whenComplete((ignored, ex) -> {
+                if (ex == null) {
+                    publisher.close();
+                } else {
+                    publisher.closeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                }
+            });
+        };
+    }
+
+    /**
+     * Returns a publisher of the Jira issues, in search order, which buffers at most as many issues as there may be
+     * issue requests in flight.
+     *
+     * @return the issue publisher
+     * @see #publish(int)
+     */
+    public Flow.Publisher<JiraIssue> publish() {
+        return publish(concurrency);
     }
 
     /**
@@ -87,66 +244,309 @@ public class JiraIssueFetcher implements AutoCloseable {
      *
      * @param dir the directory to download the JSON files to
      *
-     * @return a future which completes when all the files have been downloaded
+     * @return a future of the files, in search order, which completes when all the files have been downloaded
      */
     public CompletableFuture<Set<Path>> download(final Path dir) {
-        final CompletableFuture<Set<Path>> cf = new CompletableFuture<>();
-        getIssues().whenComplete((result, ex) -> {
-            final Set<Path> downloaded = new LinkedHashSet<>();
-            for (IssueId issue : result.issues()) {
-                final HttpRequest issueRequest = HttpRequest.newBuilder(createIssueUri(issue.key()))
-                        .header("Accept", "application/json")
-                        .GET()
-                        .build();
-                try {
-                    final var issueResponse = client.send(issueRequest, HttpResponse.BodyHandlers.ofInputStream());
-                    if (issueResponse.statusCode() != 200) {
-                        cf.completeExceptionally(new RuntimeException(String.format("Failed fetch issue %s from %s ", issue.key(), issueRequest.uri())));
-                        return;
-                    }
-                    final var jsonFile = dir.resolve(issue.key() + ".json");
-                    Files.copy(issueResponse.body(), jsonFile, StandardCopyOption.REPLACE_EXISTING);
-                    downloaded.add(jsonFile);
-                } catch (IOException | InterruptedException e) {
-                    cf.completeExceptionally(e);
-                    return;
-                }
-            }
-            cf.complete(Set.copyOf(downloaded));
-        });
-        return cf;
+        final Set<Path> downloaded = new LinkedHashSet<>();
+        if (bulkSearch) {
+            return forEachSearchResult(issue -> downloaded.add(writeIssue(issue, dir))).thenApply(ignored -> Collections.unmodifiableSet(downloaded));
+        }
+        return forEachIssue(issue -> downloadIssue(issue, dir), downloaded::add).thenApply(ignored -> Collections.unmodifiableSet(downloaded));
     }
 
     @Override
     public void close() throws Exception {
         try {
-            jsonb.close();
+            executor.shutdownNow();
         } finally {
-            client.close();
+            jsonb.close();
+        }
+    }
+
+    private CompletableFuture<Void> forEachJiraIssue(final Consumer<? super JiraIssue> sink) {
+        if (bulkSearch) {
+            return forEachSearchResult(issue -> sink.accept(timedParse(() -> parser.parse(issue))));
+        }
+        return forEachIssue(this::fetchIssue, sink);
+    }
+
+    /**
+     * Runs the task for every issue key found by the search, with at most {@link #concurrency} tasks in flight,
+     * and passes the results to the sink in search order. The first failing task fails the returned future, and
+     * any tasks still in flight at that point are cancelled.
+     *
+     * @param task the per-issue task, which is run on a virtual thread
+     * @param sink the consumer of the task results, which is called from one thread at a time
+     *
+     * @return a future which completes when every result has been passed to the sink
+     */
+    private <T> CompletableFuture<Void> forEachIssue(final Function<IssueId, T> task, final Consumer<? super T> sink) {
+        final ArrayDeque<Future<T>> window = new ArrayDeque<>(concurrency);
+        return getIssues(QueryResult.class, KEY_FIELDS, page -> {
+            for (IssueId issue : page.issues()) {
+                if (checkpoint.isCurrent(issue.key(), issue.fields().updated())) {
+                    metrics.expect(-1);
+                    continue;
+                }
+                if (window.size() == concurrency) {
+                    sink.accept(await(window.removeFirst()));
+                }
+                window.addLast(executor.submit(() -> task.apply(issue)));
+            }
+        }).thenRun(() -> {
+            while (!window.isEmpty()) {
+                sink.accept(await(window.removeFirst()));
+            }
+        }).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                window.forEach(f -> f.cancel(true));
+            }
+        });
+    }
+
+    /**
+     * Passes every issue found by the search to the sink, reading the issue fields straight from the search
+     * results instead of requesting each issue separately.
+     *
+     * @param sink the consumer of the search results, which is called from one thread at a time
+     *
+     * @return a future which completes when every result has been passed to the sink
+     */
+    private CompletableFuture<Void> forEachSearchResult(final Consumer<JiraIssueParser.IssueResult> sink) {
+        return getIssues(SearchResult.class, ISSUE_FIELDS, page -> {
+            for (JiraIssueParser.IssueResult issue : page.issues()) {
+                if (!checkpoint.isCurrent(issue.key(), issue.fields().updated())) {
+                    sink.accept(issue);
+                } else {
+                    metrics.expect(-1);
+                }
+            }
+        });
+    }
+
+    private static <T> T await(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new CompletionException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private JiraIssue fetchIssue(final IssueId issue) {
+        if (cache != null) {
+            final Path file = cachedIssue(issue);
+            return timedParse(() -> parser.parseFile(file));
+        }
+        final HttpResponse<InputStream> issueResponse = sendIssueRequest(issue, null);
+        try (InputStream body = issueResponse.body()) {
+            return timedParse(() -> parser.parse(body));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JiraIssue timedParse(final Supplier<JiraIssue> parse) {
+        final long start = System.nanoTime();
+        try {
+            final JiraIssue parsed = parse.get();
+            parseStage.record(start);
+            return parsed;
+        } catch (RuntimeException e) {
+            parseStage.failed();
+            throw e;
+        }
+    }
+
+    private Path downloadIssue(final IssueId issue, final Path dir) {
+        final var jsonFile = dir.resolve(issue.key() + ".json");
+        try {
+            if (cache != null) {
+                final Path cached = cachedIssue(issue);
+                if (!cached.equals(jsonFile)) {
+                    Files.copy(cached, jsonFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return jsonFile;
+            }
+            final HttpResponse<InputStream> issueResponse = sendIssueRequest(issue, null);
+            try (InputStream body = issueResponse.body()) {
+                Files.copy(body, jsonFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return jsonFile;
+    }
+
+    /**
+     * Returns the cached JSON of the issue, first refreshing it if needed. The issue is not requested at all if
+     * the cached copy is as recent as the search result says the issue is, and otherwise it is requested
+     * conditionally, so an unchanged issue costs a {@code 304} with no body.
+     */
+    private Path cachedIssue(final IssueId issue) {
+        try {
+            final IssueCache.Entry cached = cache.get(issue.key());
+            if (cached != null && cached.isCurrent(issue.fields().updated())) {
+                return cached.file();
+            }
+            final HttpResponse<InputStream> issueResponse = sendIssueRequest(issue, cached);
+            try (InputStream body = issueResponse.body()) {
+                if (issueResponse.statusCode() == 304) {
+                    return cached.file();
+                }
+                return cache.put(issue.key(), body, issueResponse.headers(), issue.fields().updated()).file();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path writeIssue(final JiraIssueParser.IssueResult issue, final Path dir) {
+        final var jsonFile = dir.resolve(issue.key() + ".json");
+        try (Writer writer = Files.newBufferedWriter(jsonFile, StandardCharsets.UTF_8)) {
+            jsonb.toJson(issue, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return jsonFile;
+    }
+
+    private HttpResponse<InputStream> sendIssueRequest(final IssueId issue, final IssueCache.Entry cached) {
+        final HttpRequest.Builder builder = transport.newRequest(createIssueUri(issue.key()))
+                .header("Accept", "application/json")
+                .GET();
+        if (cached != null) {
+            cached.addConditions(builder);
+        }
+        final HttpRequest issueRequest = builder.build();
+        final HttpResponse<InputStream> issueResponse;
+        final HttpRequestEvent event = new HttpRequestEvent();
+        event.begin();
+        final long start = System.nanoTime();
+        try {
+            issueResponse = send(issueRequest);
+        } catch (IOException e) {
+            failed(event, issueRequest);
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            failed(event, issueRequest);
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        fetchStage.record(start);
+        event.complete(HttpRequestEvent.JIRA, issueRequest, issueResponse, 0);
+        if (issueResponse.statusCode() != 200 && (cached == null || issueResponse.statusCode() != 304)) {
+            fetchStage.failed();
+            // an unread body keeps its exchange open, which would stall closing the client
+            try {
+                issueResponse.body().close();
+            } catch (IOException ignored) {
+            }
+            throw new RuntimeException(String.format("Failed fetch issue %s from %s ", issue.key(), issueRequest.uri()));
+        }
+        return issueResponse;
+    }
+
+    /**
+     * Walks the search results page by page until {@link QueryResult#total()} keys have been seen. The request
+     * for the next page is sent before the current page is handed to the consumer, so processing a page overlaps
+     * with fetching the following one. Pages are handed to the consumer one at a time, in order.
+     * <p>
+     * A delta run pages by key instead of by offset: the results are ordered by key, and each page asks for the
+     * issues after the last key of the previous one. Issues are likely to be updated or resolved while a delta run
+     * is in progress, which would otherwise shift the pages so that issues are skipped or fetched twice.
+     *
+     * @param pageType     the type to bind each page of search results to
+     * @param fields       the issue fields to include in the search results
+     * @param pageConsumer the consumer of each page; an exception thrown from it fails the returned future
+     *
+     * @return a future which completes when the last page has been consumed
+     */
+    private <P extends Page> CompletableFuture<Void> getIssues(final Class<P> pageType, final String fields, final Consumer<P> pageConsumer) {
+        return getPage(pageType, fields, 0, null).thenCompose(page -> consumePages(pageType, fields, page, pageConsumer));
+    }
+
+    private <P extends Page> CompletableFuture<Void> consumePages(final Class<P> pageType, final String fields, final P page, final Consumer<P> pageConsumer) {
+        final int next = page.startAt() + page.issues().size();
+        if (page.issues().isEmpty() || next >= page.total()) {
+            pageConsumer.accept(page);
+            return CompletableFuture.completedFuture(null);
         }
+        // prefetch the next page while this one is being processed
+        final CompletableFuture<P> nextPage = checkpoint.since() == null
+                ? getPage(pageType, fields, next, null)
+                : getPage(pageType, fields, 0, page.lastKey());
+        try {
+            pageConsumer.accept(page);
+        } catch (Throwable t) {
+            nextPage.cancel(false);
+            throw t;
+        }
+        return nextPage.thenCompose(p -> consumePages(pageType, fields, p, pageConsumer));
     }
 
-    private CompletableFuture<QueryResult> getIssues() {
-        final CompletableFuture<QueryResult> cf = new CompletableFuture<>();
-        final HttpRequest request = HttpRequest.newBuilder(createJqlUri()).GET()
+    private <P extends Page> CompletableFuture<P> getPage(final Class<P> pageType, final String fields, final int startAt, final String afterKey) {
+        final CompletableFuture<P> cf = new CompletableFuture<>();
+        final HttpRequest request = transport.newRequest(createJqlUri(fields, startAt, afterKey)).GET()
                 .header("Accept", "application/json")
                 .build();
-        final CompletableFuture<HttpResponse<InputStream>> future = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        final HttpRequestEvent event = new HttpRequestEvent();
+        event.begin();
+        final long start = System.nanoTime();
+        final CompletableFuture<HttpResponse<InputStream>> future = requests == null
+                ? transport.client().sendAsync(request, Transport.ofInputStream())
+                : requests.run(() -> transport.client().sendAsync(request, Transport.ofInputStream()));
         future.whenComplete((response, ex) -> {
             if (ex != null) {
+                failed(event, request);
                 cf.completeExceptionally(new RuntimeException("Failed fetch issues from " + request.uri(), ex));
                 return;
             }
-            if (response.statusCode() != 200) {
-                cf.completeExceptionally(new RuntimeException(String.format("Failed fetch issues from %s%n%d: %s", request.uri(), response.statusCode(), response.body())));
-                return;
+            event.complete(HttpRequestEvent.JIRA, request, response, 0);
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    fetchStage.failed();
+                    cf.completeExceptionally(new RuntimeException(String.format("Failed fetch issues from %s%n%d: %s", request.uri(), response.statusCode(), new String(body.readAllBytes(), StandardCharsets.UTF_8))));
+                    return;
+                }
+                final P page = jsonb.fromJson(body, pageType);
+                // the response only counts once its body was read
+                fetchStage.record(start);
+                if (startAt == 0 && afterKey == null) {
+                    metrics.expect(page.total());
+                }
+                cf.complete(page);
+            } catch (Throwable t) {
+                cf.completeExceptionally(t);
             }
-            cf.complete(jsonb.fromJson(response.body(), QueryResult.class));
         });
         return cf;
     }
 
-    private URI createJqlUri() {
+    private HttpResponse<InputStream> send(final HttpRequest request) throws IOException, InterruptedException {
+        if (requests == null) {
+            return transport.client().send(request, Transport.ofInputStream());
+        }
+        requests.acquire();
+        try {
+            return transport.client().send(request, Transport.ofInputStream());
+        } finally {
+            requests.release();
+        }
+    }
+
+    private void failed(final HttpRequestEvent event, final HttpRequest request) {
+        fetchStage.failed();
+        event.complete(HttpRequestEvent.JIRA, request, null, 0);
+    }
+
+    private URI createJqlUri(final String fields, final int startAt, final String afterKey) {
         final StringBuilder uri = new StringBuilder();
         uri.append(baseUri);
         if (!baseUri.endsWith("/")) {
@@ -154,7 +554,23 @@ public class JiraIssueFetcher implements AutoCloseable {
         }
         uri.append("rest/api/2/search?jql=project+%3d+")
                 .append(projectId)
-                .append("+AND+resolution+%3D+Unresolved+ORDER+BY+priority+DESC%2C+updated+DESC");
+                .append("+AND+resolution+%3D+Unresolved");
+        final Instant since = checkpoint.since();
+        if (since != null) {
+            // relative dates avoid depending on the time zone of the Jira user
+            final long minutes = Duration.between(since, Instant.now()).toMinutes() + 1;
+            uri.append("+AND+updated+%3E%3D+-").append(minutes).append('m');
+            if (afterKey != null) {
+                uri.append("+AND+key+%3E+").append(afterKey);
+            }
+            // a stable order, so that issues which are updated during the run do not move between pages
+            uri.append("+ORDER+BY+key+ASC");
+        } else {
+            uri.append("+ORDER+BY+priority+DESC%2C+updated+DESC");
+        }
+        uri.append("&fields=").append(fields)
+                .append("&startAt=").append(startAt)
+                .append("&maxResults=").append(pageSize);
         return URI.create(uri.toString());
     }
 
@@ -168,9 +584,59 @@ public class JiraIssueFetcher implements AutoCloseable {
         return URI.create(uri.toString());
     }
 
-    public record QueryResult(int startAt, int total, List<IssueId> issues) {
+    /**
+     * The search and request settings.
+     *
+     * @param pageSize    the number of issue keys to request per search page
+     * @param concurrency the maximum number of issue requests in flight at once
+     * @param bulkSearch  {@code true} to read whole issues from the search results instead of requesting each issue
+     *                    separately
+     * @param cache       the on-disk cache of issue JSON, or {@code null} for none; not used in bulk search mode
+     */
+    public record Settings(int pageSize, int concurrency, boolean bulkSearch, IssueCache cache) {
+        public Settings {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("Page size must be positive (" + pageSize + ")");
+            }
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("Concurrency must be positive (" + concurrency + ")");
+            }
+        }
+    }
+
+    /**
+     * A page of search results.
+     */
+    public interface Page {
+        int startAt();
+
+        int total();
+
+        List<?> issues();
+
+        /**
+         * {@return the key of the last issue of this page}
+         */
+        String lastKey();
+    }
+
+    public record QueryResult(int startAt, int maxResults, int total, List<IssueId> issues) implements Page {
+        @Override
+        public String lastKey() {
+            return issues.get(issues.size() - 1).key();
+        }
+    }
+
+    public record SearchResult(int startAt, int maxResults, int total, List<JiraIssueParser.IssueResult> issues) implements Page {
+        @Override
+        public String lastKey() {
+            return issues.get(issues.size() - 1).key();
+        }
+    }
+
+    public record IssueId(String key, KeyFields fields) {
     }
 
-    public record IssueId(String key) {
+    public record KeyFields(ZonedDateTime updated) {
     }
 }
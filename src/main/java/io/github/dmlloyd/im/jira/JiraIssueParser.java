@@ -9,7 +9,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,27 +34,67 @@ import jakarta.json.bind.JsonbConfig;
 public class JiraIssueParser implements AutoCloseable {
     private final Jsonb jsonb;
     private final boolean closeJsonb;
+    private final JiraIssueStreamParser streamParser;
+    private final JiraUserRegistry registry;
+    private final int parallelism;
 
     public JiraIssueParser() {
-        this(JsonbBuilder.create(new JsonbConfig().
-                setProperty(JsonbConfig.DATE_FORMAT, "yyyy-MM-dd'T'HH:mm:ss.SSSZ")),
-                true
-        );
+        this(false, 1);
     }
 
     public JiraIssueParser(final Jsonb jsonb) {
-        this(jsonb, false);
+        this(jsonb, false, false, 1, JiraUserRegistry.shared());
+    }
+
+    /**
+     * Creates a new parser.
+     *
+     * @param streaming   {@code true} to read issue JSON with the streaming JSON-P API, skipping unused fields,
+     *                    instead of binding it with JSON-B
+     * @param parallelism the number of files to parse at once when {@linkplain #parse(Path) parsing a directory}
+     */
+    public JiraIssueParser(final boolean streaming, final int parallelism) {
+        this(streaming, parallelism, JiraUserRegistry.shared());
     }
 
-    private JiraIssueParser(final Jsonb jsonb, final boolean closeJsonb) {
+    /**
+     * Creates a new parser.
+     *
+     * @param streaming   {@code true} to read issue JSON with the streaming JSON-P API, skipping unused fields,
+     *                    instead of binding it with JSON-B
+     * @param parallelism the number of files to parse at once when {@linkplain #parse(Path) parsing a directory}
+     * @param registry    the registry which interns the users of the parsed issues
+     */
+    public JiraIssueParser(final boolean streaming, final int parallelism, final JiraUserRegistry registry) {
+        this(JsonbBuilder.create(new JsonbConfig().
+                setProperty(JsonbConfig.DATE_FORMAT, "yyyy-MM-dd'T'HH:mm:ss.SSSZ")),
+                true, streaming, parallelism, registry
+        );
+    }
+
+    private JiraIssueParser(final Jsonb jsonb, final boolean closeJsonb, final boolean streaming, final int parallelism, final JiraUserRegistry registry) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive (" + parallelism + ")");
+        }
         this.jsonb = jsonb;
         this.closeJsonb = closeJsonb;
+        this.streamParser = streaming ? new JiraIssueStreamParser(registry) : null;
+        this.registry = registry;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * {@return the registry which interns the users of the parsed issues}
+     */
+    public JiraUserRegistry registry() {
+        return registry;
     }
 
     /**
      * Creates a collection of {@link JiraIssue Jira issues} from the path. If the path is a directory, all
      * {@code *.json} files are parsed into Jira issues. If the path is a file, the file must be a JSON file and a
-     * set with a single Jira issue is returned.
+     * set with a single Jira issue is returned. Directories are parsed on virtual threads, as many files at once as
+     * this parser's parallelism allows.
      *
      * @param path the path to the directory to find files or a specific file to parse
      *
@@ -56,15 +105,12 @@ public class JiraIssueParser implements AutoCloseable {
     public Set<JiraIssue> parse(final Path path) throws IOException {
         if (Files.isDirectory(path)) {
             try (Stream<Path> stream = Files.walk(path)) {
-                return stream.filter(f -> f.getFileName().toString().endsWith(".json"))
-                        .map(f -> {
-                            try (BufferedReader reader = Files.newBufferedReader(f, StandardCharsets.UTF_8)) {
-                                return parse(reader);
-                            } catch (IOException e) {
-                                throw new RuntimeException(String.format("Failed to process file %s", f), e);
-                            }
-                        })
-                        .collect(Collectors.toSet());
+                if (parallelism == 1) {
+                    return stream.filter(f -> f.getFileName().toString().endsWith(".json"))
+                            .map(this::parseFile)
+                            .collect(Collectors.toSet());
+                }
+                return parseAll(stream.filter(f -> f.getFileName().toString().endsWith(".json")).toList());
             }
         } else {
             try (InputStream in = Files.newInputStream(path)) {
@@ -73,6 +119,60 @@ public class JiraIssueParser implements AutoCloseable {
         }
     }
 
+    private Set<JiraIssue> parseAll(final List<Path> files) {
+        // a virtual thread per file, at most parallelism of which parse at once
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        final Semaphore permits = new Semaphore(parallelism);
+        try {
+            final List<Future<JiraIssue>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return parseFile(file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            final Set<JiraIssue> issues = new HashSet<>(futures.size());
+            for (Future<JiraIssue> future : futures) {
+                try {
+                    issues.add(future.get());
+                } catch (ExecutionException e) {
+                    // rethrow the per-file exception as is
+                    if (e.getCause() instanceof RuntimeException re) {
+                        throw re;
+                    }
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while parsing files", e);
+                }
+            }
+            return issues;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses a single JSON file and creates a {@link JiraIssue} from its content.
+     *
+     * @param file the JSON file
+     *
+     * @return a new Jira issue
+     *
+     * @throws RuntimeException if an error occurs reading the file
+     */
+    public JiraIssue parseFile(final Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to process file %s", file), e);
+        }
+    }
+
     /**
      * Parses the JSON input stream and creates a {@link JiraIssue} from content.
      *
@@ -92,11 +192,34 @@ public class JiraIssueParser implements AutoCloseable {
      * @return a new Jira issue
      */
     public JiraIssue parse(final Reader json) {
-        final IssueResult issue = jsonb.fromJson(json, IssueResult.class);
+        if (streamParser != null) {
+            return streamParser.parse(json);
+        }
+        return parse(jsonb.fromJson(json, IssueResult.class));
+    }
+
+    /**
+     * Creates a {@link JiraIssue} from an already bound issue, such as one taken from a page of search results.
+     *
+     * @param issue the bound issue
+     *
+     * @return a new Jira issue
+     */
+    public JiraIssue parse(final IssueResult issue) {
         final IssueField fields = issue.fields();
+        final List<JiraComment> bound = fields.comment().comments();
+        Set<JiraComment> comments = null;
+        if (bound != null) {
+            // rebuild the comments so that the bound duplicates of their users can be collected
+            comments = new LinkedHashSet<>();
+            for (JiraComment comment : bound) {
+                comments.add(new JiraComment(comment.id(), registry.intern(comment.author()), registry.intern(comment.updateAuthor()),
+                        comment.created(), comment.updated(), comment.body()));
+            }
+        }
         return new JiraIssue(fields.description(), issue.key(), fields.summary(), fields.issuetype()
-                .name(), null, fields.assignee(), fields.reporter(), fields.created(), fields.updated(), fields.comment()
-                .comments());
+                .name(), null, registry.intern(fields.assignee()), registry.intern(fields.reporter()), fields.created(),
+                fields.updated(), comments);
     }
 
     @Override
@@ -124,7 +247,7 @@ public class JiraIssueParser implements AutoCloseable {
 
     }
 
-    public record IssueComment(Set<JiraComment> comments) {
+    public record IssueComment(List<JiraComment> comments) {
     }
 
     public record IssueType(String id, String name, String description) {
@@ -0,0 +1,196 @@
+package io.github.dmlloyd.im.jira;
+
+import java.io.Reader;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+import jakarta.json.stream.JsonParsingException;
+
+/**
+ * Reads a {@link JiraIssue} from issue JSON with the streaming JSON-P API. Only the fields which end up in the
+ * {@code JiraIssue} are read; everything else is skipped without being materialized, and there is no reflective
+ * binding.
+ * <p>
+ * Users are interned with a {@link JiraUserRegistry}. Instances are safe for concurrent use.
+ */
+final class JiraIssueStreamParser {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    private final JsonParserFactory factory = Json.createParserFactory(Map.of());
+    private final JiraUserRegistry registry;
+
+    JiraIssueStreamParser(final JiraUserRegistry registry) {
+        this.registry = registry;
+    }
+
+    JiraIssue parse(final Reader json) {
+        try (JsonParser parser = factory.createParser(json)) {
+            expect(parser, parser.next(), JsonParser.Event.START_OBJECT);
+            String key = null;
+            final IssueFields fields = new IssueFields();
+            while (parser.next() == JsonParser.Event.KEY_NAME) {
+                switch (parser.getString()) {
+                    case "key" -> key = readString(parser);
+                    case "fields" -> readFields(parser, fields);
+                    default -> skipValue(parser);
+                }
+            }
+            return new JiraIssue(fields.description, key, fields.summary, fields.type, null, fields.assignee,
+                    fields.reporter, fields.created, fields.updated, fields.comments);
+        }
+    }
+
+    private void readFields(final JsonParser parser, final IssueFields fields) {
+        expect(parser, parser.next(), JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "description" -> fields.description = readString(parser);
+                case "summary" -> fields.summary = readString(parser);
+                case "assignee" -> fields.assignee = readUser(parser);
+                case "reporter" -> fields.reporter = readUser(parser);
+                case "created" -> fields.created = readDate(parser);
+                case "updated" -> fields.updated = readDate(parser);
+                case "issuetype" -> fields.type = readIssueTypeName(parser);
+                case "comment" -> fields.comments = readComments(parser);
+                default -> skipValue(parser);
+            }
+        }
+    }
+
+    private static String readIssueTypeName(final JsonParser parser) {
+        if (nextIsNull(parser)) {
+            return null;
+        }
+        String name = null;
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if (parser.getString().equals("name")) {
+                name = readString(parser);
+            } else {
+                skipValue(parser);
+            }
+        }
+        return name;
+    }
+
+    private Set<JiraComment> readComments(final JsonParser parser) {
+        final Set<JiraComment> comments = new LinkedHashSet<>();
+        if (nextIsNull(parser)) {
+            return comments;
+        }
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if (parser.getString().equals("comments")) {
+                expect(parser, parser.next(), JsonParser.Event.START_ARRAY);
+                JsonParser.Event event;
+                while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+                    expect(parser, event, JsonParser.Event.START_OBJECT);
+                    comments.add(readComment(parser));
+                }
+            } else {
+                skipValue(parser);
+            }
+        }
+        return comments;
+    }
+
+    private JiraComment readComment(final JsonParser parser) {
+        String id = null;
+        JiraUser author = null;
+        JiraUser updateAuthor = null;
+        ZonedDateTime created = null;
+        ZonedDateTime updated = null;
+        String body = null;
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "id" -> id = readString(parser);
+                case "author" -> author = readUser(parser);
+                case "updateAuthor" -> updateAuthor = readUser(parser);
+                case "created" -> created = readDate(parser);
+                case "updated" -> updated = readDate(parser);
+                case "body" -> body = readString(parser);
+                default -> skipValue(parser);
+            }
+        }
+        return new JiraComment(id, author, updateAuthor, created, updated, body);
+    }
+
+    private JiraUser readUser(final JsonParser parser) {
+        if (nextIsNull(parser)) {
+            return null;
+        }
+        String key = null;
+        String name = null;
+        String displayName = null;
+        boolean active = false;
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "key" -> key = readString(parser);
+                case "name" -> name = readString(parser);
+                case "displayName" -> displayName = readString(parser);
+                case "active" -> active = parser.next() == JsonParser.Event.VALUE_TRUE;
+                default -> skipValue(parser);
+            }
+        }
+        return registry.intern(new JiraUser(key, name, displayName, active));
+    }
+
+    private static ZonedDateTime readDate(final JsonParser parser) {
+        final String value = readString(parser);
+        return value == null ? null : ZonedDateTime.parse(value, DATE_FORMAT);
+    }
+
+    private static String readString(final JsonParser parser) {
+        final JsonParser.Event event = parser.next();
+        if (event == JsonParser.Event.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, event, JsonParser.Event.VALUE_STRING);
+        return parser.getString();
+    }
+
+    /**
+     * Advances to the next value, which has to be an object or {@code null}.
+     *
+     * @return {@code true} if the value is {@code null}, or {@code false} if the parser is now inside the object
+     */
+    private static boolean nextIsNull(final JsonParser parser) {
+        final JsonParser.Event event = parser.next();
+        if (event == JsonParser.Event.VALUE_NULL) {
+            return true;
+        }
+        expect(parser, event, JsonParser.Event.START_OBJECT);
+        return false;
+    }
+
+    private static void skipValue(final JsonParser parser) {
+        switch (parser.next()) {
+            case START_OBJECT -> parser.skipObject();
+            case START_ARRAY -> parser.skipArray();
+            default -> {
+                // scalar value, already consumed
+            }
+        }
+    }
+
+    private static void expect(final JsonParser parser, final JsonParser.Event actual, final JsonParser.Event expected) {
+        if (actual != expected) {
+            throw new JsonParsingException(String.format("Expected %s but found %s", expected, actual), parser.getLocation());
+        }
+    }
+
+    private static final class IssueFields {
+        String description;
+        String summary;
+        String type;
+        JiraUser assignee;
+        JiraUser reporter;
+        ZonedDateTime created;
+        ZonedDateTime updated;
+        Set<JiraComment> comments = Set.of();
+    }
+}
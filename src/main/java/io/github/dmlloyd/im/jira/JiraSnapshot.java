@@ -0,0 +1,574 @@
+package io.github.dmlloyd.im.jira;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact, single-file snapshot of Jira issues, which can be reloaded far faster than the JSON it was made from.
+ * <p>
+ * The file holds length-prefixed issue records, followed by a string table, a user table and a key index. Strings
+ * which repeat across issues, such as user names, issue types and time zones, are stored once in the string table,
+ * and users once in the user table; records refer to them by index, so the issues of a snapshot share one instance of
+ * each user. Numbers are stored as variable-length integers.
+ * <p>
+ * A snapshot is read through a memory mapping, so it must be smaller than 2 GiB. Issues can be iterated in the order
+ * they were written, or looked up by key with a binary search of the index. Instances are immutable and safe for
+ * concurrent use.
+ * <p>
+ * To keep only a few issues in memory at a time, iterate the {@linkplain #handles() handles} instead of the issues.
+ * A handle only holds the position of its record, plus the key and update time, and decodes the issue with its
+ * description and comment bodies only when {@linkplain Handle#issue() asked for}, as often as needed.
+ */
+public final class JiraSnapshot implements Iterable<JiraIssue> {
+    private static final int MAGIC = 0x494d5332;
+    private static final int FOOTER_SIZE = 4 + 8 + 8 + 8 + 4 + 4;
+
+    private final ByteBuffer buf;
+    private final long recordsEnd;
+    private final String[] strings;
+    private final JiraUser[] users;
+    private final ZoneId[] zones;
+    private final int[] indexKeys;
+    private final long[] indexOffsets;
+
+    private JiraSnapshot(final ByteBuffer buf, final long recordsEnd, final String[] strings, final JiraUser[] users, final int[] indexKeys, final long[] indexOffsets) {
+        this.buf = buf;
+        this.recordsEnd = recordsEnd;
+        this.strings = strings;
+        this.users = users;
+        this.zones = new ZoneId[strings.length];
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+    }
+
+    /**
+     * Opens a snapshot file.
+     *
+     * @param path the snapshot file
+     *
+     * @return the snapshot
+     *
+     * @throws IOException if the file could not be read, or is not a snapshot
+     */
+    public static JiraSnapshot open(final Path path) throws IOException {
+        final MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Snapshot %s is too large to map", path));
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buf.capacity() < 4 + FOOTER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(buf.capacity() - 4) != MAGIC) {
+            throw new IOException(String.format("File %s is not a Jira snapshot", path));
+        }
+        final int footer = buf.capacity() - FOOTER_SIZE;
+        final long stringsStart = buf.getLong(footer + 4);
+        final long usersStart = buf.getLong(footer + 12);
+        final long indexStart = buf.getLong(footer + 20);
+        final int count = buf.getInt(footer + 28);
+        final ByteBuffer in = buf.duplicate();
+
+        in.position((int) stringsStart);
+        final String[] strings = new String[readInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+        in.position((int) usersStart);
+        final JiraUser[] users = new JiraUser[readInt(in)];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new JiraUser(stringRef(strings, in), stringRef(strings, in), stringRef(strings, in), in.get() != 0);
+        }
+        in.position((int) indexStart);
+        final int[] indexKeys = new int[count];
+        final long[] indexOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            indexKeys[i] = readInt(in);
+            indexOffsets[i] = readLong(in);
+        }
+        return new JiraSnapshot(buf, stringsStart, strings, users, indexKeys, indexOffsets);
+    }
+
+    /**
+     * Creates a writer for a new snapshot. The snapshot replaces the file only once the writer is closed.
+     *
+     * @param path the snapshot file
+     *
+     * @return the writer
+     *
+     * @throws IOException if the file could not be created
+     */
+    public static Writer create(final Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    /**
+     * {@return the number of issues in the snapshot}
+     */
+    public int size() {
+        return indexKeys.length;
+    }
+
+    /**
+     * {@return every user of the snapshot's issues and comments}
+     */
+    public List<JiraUser> users() {
+        return List.of(users);
+    }
+
+    /**
+     * Looks up an issue by key.
+     *
+     * @param key the issue key
+     *
+     * @return the issue, or {@code null} if the snapshot does not contain it
+     */
+    public JiraIssue get(final String key) {
+        int low = 0;
+        int high = indexKeys.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = strings[indexKeys[mid]].compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return read(buf.duplicate().position((int) indexOffsets[mid]));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns an iterator over the issues, in the order they were written. Each issue is decoded as it is reached.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<JiraIssue> iterator() {
+        final ByteBuffer in = buf.duplicate().position(4);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return in.position() < recordsEnd;
+            }
+
+            @Override
+            public JiraIssue next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int length = readInt(in);
+                final int start = in.position();
+                final JiraIssue issue = read(in);
+                in.position(start + length);
+                return issue;
+            }
+        };
+    }
+
+    /**
+     * Returns the handles of the issues, in the order they were written. Only the key and update time of each issue
+     * are decoded while iterating.
+     *
+     * @return the handles
+     */
+    public Iterable<Handle> handles() {
+        return () -> {
+            final ByteBuffer in = buf.duplicate().position(4);
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return in.position() < recordsEnd;
+                }
+
+                @Override
+                public Handle next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final int length = readInt(in);
+                    final int start = in.position();
+                    skipString(in);
+                    final String key = stringRef(strings, in);
+                    skipString(in);
+                    // type, priority, assignee and reporter
+                    for (int i = 0; i < 4; i++) {
+                        readInt(in);
+                    }
+                    readDate(in);
+                    final ZonedDateTime updated = readDate(in);
+                    in.position(start + length);
+                    return new Handle(start, key, updated);
+                }
+            };
+        };
+    }
+
+    private JiraIssue read(final ByteBuffer in) {
+        final String description = readString(in);
+        final String id = stringRef(strings, in);
+        final String summary = readString(in);
+        final String type = stringRef(strings, in);
+        final String priority = stringRef(strings, in);
+        final JiraUser assignee = userRef(in);
+        final JiraUser reporter = userRef(in);
+        final ZonedDateTime created = readDate(in);
+        final ZonedDateTime updated = readDate(in);
+        final int commentCount = readInt(in) - 1;
+        final Set<JiraComment> comments;
+        if (commentCount == -1) {
+            comments = null;
+        } else {
+            comments = new LinkedHashSet<>(Math.max(16, commentCount * 2));
+            for (int i = 0; i < commentCount; i++) {
+                final String commentId = readString(in);
+                final JiraUser author = userRef(in);
+                final JiraUser updateAuthor = userRef(in);
+                final ZonedDateTime commentCreated = readDate(in);
+                final ZonedDateTime commentUpdated = readDate(in);
+                comments.add(new JiraComment(commentId, author, updateAuthor, commentCreated, commentUpdated, readString(in)));
+            }
+        }
+        return new JiraIssue(description, id, summary, type, priority, assignee, reporter, created, updated, comments);
+    }
+
+    private JiraUser userRef(final ByteBuffer in) {
+        final int ref = readInt(in);
+        return ref == 0 ? null : users[ref - 1];
+    }
+
+    private ZonedDateTime readDate(final ByteBuffer in) {
+        final int zone = readInt(in);
+        if (zone == 0) {
+            return null;
+        }
+        final long millis = zigZagDecode(readLong(in));
+        ZoneId zoneId = zones[zone - 1];
+        if (zoneId == null) {
+            // racy but idempotent
+            zones[zone - 1] = zoneId = ZoneId.of(strings[zone - 1]);
+        }
+        return Instant.ofEpochMilli(millis).atZone(zoneId);
+    }
+
+    private static String stringRef(final String[] strings, final ByteBuffer in) {
+        final int ref = readInt(in);
+        return ref == 0 ? null : strings[ref - 1];
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final int length = readInt(in) - 1;
+        if (length == -1) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(final ByteBuffer in) {
+        final int length = readInt(in) - 1;
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+
+    private static int readInt(final ByteBuffer in) {
+        return (int) readLong(in);
+    }
+
+    private static long readLong(final ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long zigZagDecode(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * A reference to an issue of the snapshot, which is decoded only when needed.
+     */
+    public final class Handle {
+        private final int offset;
+        private final String key;
+        private final ZonedDateTime updated;
+
+        Handle(final int offset, final String key, final ZonedDateTime updated) {
+            this.offset = offset;
+            this.key = key;
+            this.updated = updated;
+        }
+
+        /**
+         * {@return the issue key}
+         */
+        public String key() {
+            return key;
+        }
+
+        /**
+         * {@return the time the issue was last updated, or {@code null} if unknown}
+         */
+        public ZonedDateTime updated() {
+            return updated;
+        }
+
+        /**
+         * Decodes the issue. Every call decodes it anew, so the issue can be collected when it is no longer used.
+         *
+         * @return the issue
+         */
+        public JiraIssue issue() {
+            return read(buf.duplicate().position(offset));
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    /**
+     * Writes a snapshot, one issue at a time. Only the string table, the users and the key index are held in memory
+     * until the writer is closed. Instances are not safe for concurrent use.
+     */
+    public static final class Writer implements Closeable {
+        private final Path path;
+        private final Path tmp;
+        private final OutputStream out;
+        private final Encoder record = new Encoder();
+        private final Encoder header = new Encoder();
+        private final HashMap<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final HashMap<JiraUser, Integer> userIds = new HashMap<>();
+        private final List<JiraUser> users = new ArrayList<>();
+        private final HashMap<String, Long> offsets = new HashMap<>();
+        private long position;
+        private boolean closed;
+
+        Writer(final Path path) throws IOException {
+            this.path = path;
+            this.tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            this.out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16);
+            out.write(ByteBuffer.allocate(4).putInt(MAGIC).array());
+            position = 4;
+        }
+
+        /**
+         * Adds an issue to the snapshot. An issue whose key was added before is ignored.
+         *
+         * @param issue the issue
+         *
+         * @return {@code true} if the issue was added
+         *
+         * @throws IOException if the issue could not be written
+         */
+        public boolean add(final JiraIssue issue) throws IOException {
+            if (offsets.containsKey(issue.id())) {
+                return false;
+            }
+            record.reset();
+            record.string(issue.description());
+            record.ref(string(issue.id()));
+            record.string(issue.summary());
+            record.ref(string(issue.type()));
+            record.ref(string(issue.priority()));
+            record.ref(user(issue.assignee()));
+            record.ref(user(issue.reporter()));
+            date(issue.created());
+            date(issue.updated());
+            final Set<JiraComment> comments = issue.comments();
+            record.varint(comments == null ? 0 : comments.size() + 1);
+            if (comments != null) {
+                for (JiraComment comment : comments) {
+                    record.string(comment.id());
+                    record.ref(user(comment.author()));
+                    record.ref(user(comment.updateAuthor()));
+                    date(comment.created());
+                    date(comment.updated());
+                    record.string(comment.body());
+                }
+            }
+            header.reset();
+            header.varint(record.size());
+            offsets.put(issue.id(), Long.valueOf(position + header.size()));
+            header.writeTo(out);
+            record.writeTo(out);
+            position += header.size() + record.size();
+            return true;
+        }
+
+        /**
+         * Writes the tables and the index, and moves the snapshot into place.
+         *
+         * @throws IOException if the snapshot could not be completed
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (out) {
+                final String[] keys = offsets.keySet().toArray(String[]::new);
+                Arrays.sort(keys);
+                // every key, user field and zone was interned when its issue was added, so the table is complete
+                final long stringsStart = position;
+                record.reset();
+                record.varint(strings.size());
+                for (String s : strings) {
+                    record.string(s);
+                }
+                final long usersStart = stringsStart + record.size();
+                record.varint(users.size());
+                for (JiraUser user : users) {
+                    record.ref(string(user.key()));
+                    record.ref(string(user.name()));
+                    record.ref(string(user.displayName()));
+                    record.varint(user.active() ? 1 : 0);
+                }
+                final long indexStart = stringsStart + record.size();
+                record.writeTo(out);
+                record.reset();
+                for (String key : keys) {
+                    record.varint(stringIds.get(key).intValue());
+                    record.varint(offsets.get(key).longValue());
+                }
+                record.writeTo(out);
+                out.write(ByteBuffer.allocate(FOOTER_SIZE)
+                    .putInt(MAGIC).putLong(stringsStart).putLong(usersStart).putLong(indexStart).putInt(keys.length).putInt(MAGIC)
+                    .array());
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Discards the snapshot, leaving any previous file in place.
+         *
+         * @throws IOException if the partial snapshot could not be deleted
+         */
+        public void abort() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private void date(final ZonedDateTime date) {
+            if (date == null) {
+                record.varint(0);
+            } else {
+                record.ref(string(date.getZone().getId()));
+                final long millis = date.toInstant().toEpochMilli();
+                record.varint((millis << 1) ^ (millis >> 63));
+            }
+        }
+
+        /**
+         * Returns the string's table reference, which is its index plus one, or {@code 0} for {@code null}.
+         */
+        private int string(final String s) {
+            if (s == null) {
+                return 0;
+            }
+            final Integer id = stringIds.get(s);
+            if (id != null) {
+                return id.intValue() + 1;
+            }
+            stringIds.put(s, Integer.valueOf(strings.size()));
+            strings.add(s);
+            return strings.size();
+        }
+
+        private int user(final JiraUser user) {
+            if (user == null) {
+                return 0;
+            }
+            final Integer id = userIds.get(user);
+            if (id != null) {
+                return id.intValue() + 1;
+            }
+            userIds.put(user, Integer.valueOf(users.size()));
+            users.add(user);
+            // intern the user's strings now, so that the string table is complete before the user table is encoded
+            string(user.key());
+            string(user.name());
+            string(user.displayName());
+            return users.size();
+        }
+    }
+
+    private static final class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+
+        void reset() {
+            bytes.reset();
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(final OutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+
+        void ref(final int ref) {
+            varint(ref);
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                bytes.write((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+        }
+
+        void string(final String s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            final byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1L);
+            bytes.write(utf8, 0, utf8.length);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.dmlloyd.im.jira;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Interns Jira users, so that every issue and comment of a user shares one canonical {@link JiraUser}, and the
+ * GitHub login of each user is mapped only once.
+ * <p>
+ * A project with millions of issues and comments typically has only a few hundred distinct users, so parsing every
+ * user into a new record wastes most of the heap, and mapping every author of every comment wastes time. Each
+ * canonical user also gets a small int id, in the order in which users were first seen.
+ * <p>
+ * Users are never removed. Instances are safe for concurrent use.
+ */
+public final class JiraUserRegistry {
+    private static final JiraUserRegistry SHARED = new JiraUserRegistry(Mappers.jiraUserMapper());
+
+    private final Function<JiraUser, String> mapper;
+    private final ConcurrentHashMap<JiraUser, Entry> entries = new ConcurrentHashMap<>();
+    // guarded by itself
+    private final List<Entry> byId = new ArrayList<>();
+
+    /**
+     * Creates a new registry.
+     *
+     * @param mapper the function which maps a Jira user to a GitHub login
+     */
+    public JiraUserRegistry(final Function<JiraUser, String> mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * {@return the registry which maps users with the {@linkplain Mappers#jiraUserMapper() default mapper}}
+     */
+    public static JiraUserRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical instance of the user.
+     *
+     * @param user the user, or {@code null}
+     *
+     * @return the canonical user, or {@code null} if the user is {@code null}
+     */
+    public JiraUser intern(final JiraUser user) {
+        return user == null ? null : entry(user).user();
+    }
+
+    /**
+     * Returns the id of the user, registering the user if needed.
+     *
+     * @param user the user
+     *
+     * @return the id, which is not negative
+     */
+    public int id(final JiraUser user) {
+        return entry(user).id();
+    }
+
+    /**
+     * Returns the user with the given id.
+     *
+     * @param id the id
+     *
+     * @return the canonical user
+     *
+     * @throws IndexOutOfBoundsException if no user has the id
+     */
+    public JiraUser user(final int id) {
+        synchronized (byId) {
+            return byId.get(id).user();
+        }
+    }
+
+    /**
+     * Returns the GitHub login of the user, which is mapped only the first time it is needed.
+     *
+     * @param user the user, or {@code null}
+     *
+     * @return the login, or {@code null} if the user is {@code null}
+     */
+    public String login(final JiraUser user) {
+        return user == null ? null : entry(user).login();
+    }
+
+    /**
+     * {@return the number of distinct users}
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry entry(final JiraUser user) {
+        final Entry existing = entries.get(user);
+        if (existing != null) {
+            return existing;
+        }
+        return entries.computeIfAbsent(user, u -> {
+            synchronized (byId) {
+                final Entry entry = new Entry(u, byId.size(), mapper.apply(u));
+                byId.add(entry);
+                return entry;
+            }
+        });
+    }
+
+    private record Entry(JiraUser user, int id, String login) {
+    }
+}
@@ -3,31 +3,17 @@ package io.github.dmlloyd.im.jira;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.util.Properties;
-import java.util.function.Function;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public class Mappers {
 
-    private static final Function<JiraUser, String> JIRA_USER_MAPPER;
+    private static final UserMapping JIRA_USER_MAPPER;
 
     static {
         try (InputStream in = Mappers.class.getResourceAsStream("/user-mapping.properties")) {
-            if (in == null) {
-                JIRA_USER_MAPPER = JiraUser::name;
-            } else {
-                final Properties properties = new Properties();
-                properties.load(in);
-                JIRA_USER_MAPPER = (user) -> {
-                    String username = properties.getProperty(user.name());
-                    if (username == null) {
-                        username = user.name();
-                    }
-                    return username;
-                };
-            }
+            JIRA_USER_MAPPER = in == null ? UserMapping.empty() : UserMapping.read(in);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -37,11 +23,12 @@ public class Mappers {
     }
 
     /**
-     * Maps a Jira user to a GitHub username.
+     * Maps a Jira user to a GitHub username, as given by the {@code user-mapping.properties} resource. To load the
+     * mapping from a file, or to verify the logins, use a {@link UserMapping} instead.
      *
      * @return the GitHub username, or the Jira username if the user could not be mapped
      */
-    public static Function<JiraUser, String> jiraUserMapper() {
+    public static UserMapping jiraUserMapper() {
         return JIRA_USER_MAPPER;
     }
 }
@@ -0,0 +1,138 @@
+package io.github.dmlloyd.im.jira;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+/**
+ * A persisted record of which issues have already been migrated, as of which {@code updated} timestamp. A fetcher
+ * given a checkpoint only searches for issues updated since the last run, and skips issues whose {@code updated}
+ * timestamp has not moved since they were recorded.
+ * <p>
+ * The fetcher only reads the checkpoint; it is up to the caller to {@linkplain #record(JiraIssue) record} each issue
+ * once it has actually been processed, and to {@linkplain #save(Path) save} the checkpoint afterwards.
+ * Instances are safe for concurrent use.
+ */
+public final class SyncCheckpoint {
+    /**
+     * The margin subtracted from the last seen update when searching, to allow for clock skew and for the minute
+     * resolution of JQL date comparisons. Issues seen again because of it are filtered out by key.
+     */
+    private static final Duration MARGIN = Duration.ofMinutes(5);
+
+    private final ConcurrentHashMap<String, Long> updated;
+    private final AtomicLong lastUpdated;
+
+    private SyncCheckpoint(final Map<String, Long> updated, final long lastUpdated) {
+        this.updated = new ConcurrentHashMap<>(updated);
+        this.lastUpdated = new AtomicLong(lastUpdated);
+    }
+
+    /**
+     * Creates an empty checkpoint, which matches every issue.
+     *
+     * @return the new checkpoint
+     */
+    public static SyncCheckpoint empty() {
+        return new SyncCheckpoint(Map.of(), Long.MIN_VALUE);
+    }
+
+    /**
+     * Loads a checkpoint from the file. If the file does not exist, an empty checkpoint is returned.
+     *
+     * @param path the checkpoint file
+     *
+     * @return the checkpoint
+     *
+     * @throws IOException if an error occurs reading the file
+     */
+    public static SyncCheckpoint load(final Path path) throws IOException {
+        if (Files.notExists(path)) {
+            return empty();
+        }
+        try (Jsonb jsonb = JsonbBuilder.create(); Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            final State state = jsonb.fromJson(reader, State.class);
+            return new SyncCheckpoint(state.issues(), state.lastUpdated());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(String.format("Failed to read checkpoint %s", path), e);
+        }
+    }
+
+    /**
+     * Atomically replaces the file with the current state of this checkpoint.
+     *
+     * @param path the checkpoint file
+     *
+     * @throws IOException if an error occurs writing the file
+     */
+    public void save(final Path path) throws IOException {
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Jsonb jsonb = JsonbBuilder.create(); Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            jsonb.toJson(new State(lastUpdated.get(), new TreeMap<>(updated)), writer);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(String.format("Failed to write checkpoint %s", path), e);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the instant from which issues have to be searched for, or {@code null} if every issue has to be.
+     *
+     * @return the instant to search from, or {@code null}
+     */
+    public Instant since() {
+        final long last = lastUpdated.get();
+        return last == Long.MIN_VALUE ? null : Instant.ofEpochMilli(last).minus(MARGIN);
+    }
+
+    /**
+     * Determines whether the issue was already processed at, or after, the given update.
+     *
+     * @param key     the issue key
+     * @param updated the issue's {@code updated} timestamp, or {@code null} if unknown
+     *
+     * @return {@code true} if the issue does not need to be processed again
+     */
+    public boolean isCurrent(final String key, final ZonedDateTime updated) {
+        if (updated == null) {
+            return false;
+        }
+        final Long recorded = this.updated.get(key);
+        return recorded != null && recorded.longValue() >= updated.toInstant().toEpochMilli();
+    }
+
+    /**
+     * Records the issue as processed.
+     *
+     * @param issue the processed issue
+     */
+    public void record(final JiraIssue issue) {
+        if (issue.updated() == null) {
+            return;
+        }
+        final long millis = issue.updated().toInstant().toEpochMilli();
+        updated.merge(issue.id(), millis, Math::max);
+        lastUpdated.accumulateAndGet(millis, Math::max);
+    }
+
+    public record State(long lastUpdated, Map<String, Long> issues) {
+    }
+}
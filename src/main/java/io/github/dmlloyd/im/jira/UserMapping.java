@@ -0,0 +1,149 @@
+package io.github.dmlloyd.im.jira;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Maps Jira users to GitHub logins.
+ * <p>
+ * Explicit mappings, from Jira user name to GitHub login, are held in an immutable table, so lookups never take a
+ * lock. A user without an explicit mapping is mapped to their Jira name. Once the existing logins are known, a
+ * mapping can be {@linkplain #verified(Set) verified}, and then maps every user whose login does not exist to
+ * {@code null}, so that their issues and comments are consistently left unattributed.
+ * <p>
+ * Instances are immutable.
+ */
+public final class UserMapping implements Function<JiraUser, String> {
+    private static final UserMapping EMPTY = new UserMapping(Map.of(), null);
+
+    private final Map<String, String> logins;
+    // null if not verified
+    private final Set<String> existing;
+
+    private UserMapping(final Map<String, String> logins, final Set<String> existing) {
+        this.logins = logins;
+        this.existing = existing;
+    }
+
+    /**
+     * {@return a mapping without explicit mappings, which maps every user to their Jira name}
+     */
+    public static UserMapping empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a mapping.
+     *
+     * @param logins the GitHub logins by Jira user name
+     *
+     * @return the mapping
+     */
+    public static UserMapping of(final Map<String, String> logins) {
+        return logins.isEmpty() ? EMPTY : new UserMapping(Map.copyOf(logins), null);
+    }
+
+    /**
+     * Loads a mapping from a properties file, which holds the GitHub login of each Jira user name.
+     *
+     * @param path the file
+     *
+     * @return the mapping
+     *
+     * @throws IOException if the file could not be read
+     */
+    public static UserMapping load(final Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            final Properties properties = new Properties();
+            properties.load(reader);
+            return of(properties);
+        }
+    }
+
+    /**
+     * Reads a mapping from a properties stream, which holds the GitHub login of each Jira user name.
+     *
+     * @param in the stream
+     *
+     * @return the mapping
+     *
+     * @throws IOException if the stream could not be read
+     */
+    public static UserMapping read(final InputStream in) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(in);
+        return of(properties);
+    }
+
+    private static UserMapping of(final Properties properties) {
+        final Map<String, String> logins = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            logins.put(name, properties.getProperty(name).strip());
+        }
+        return of(logins);
+    }
+
+    /**
+     * Returns the GitHub login which the Jira user name maps to, whether it exists or not.
+     *
+     * @param name the Jira user name
+     *
+     * @return the explicitly mapped login, or the name itself
+     */
+    public String login(final String name) {
+        return name == null ? null : logins.getOrDefault(name, name);
+    }
+
+    /**
+     * Returns the GitHub logins which the given users map to, whether they exist or not, such as to find out which
+     * of them exist.
+     *
+     * @param users the users
+     *
+     * @return the logins, including every explicitly mapped one
+     */
+    public Set<String> logins(final Collection<JiraUser> users) {
+        final Set<String> result = new LinkedHashSet<>(logins.values());
+        for (JiraUser user : users) {
+            if (user != null && user.name() != null) {
+                result.add(login(user.name()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a mapping which maps users to {@code null} unless their login is one of the given existing logins.
+     *
+     * @param existing the logins which are known to exist
+     *
+     * @return the verified mapping
+     */
+    public UserMapping verified(final Set<String> existing) {
+        return new UserMapping(logins, Set.copyOf(existing));
+    }
+
+    /**
+     * Maps the Jira user to a GitHub login.
+     *
+     * @param user the user
+     *
+     * @return the GitHub login, or {@code null} if this mapping is verified and the login does not exist
+     */
+    @Override
+    public String apply(final JiraUser user) {
+        final String login = login(user.name());
+        return login == null || existing == null || existing.contains(login) ? login : null;
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(30)
+class FairSchedulerTest {
+
+    @Test
+    void rejectsNoPermits() {
+        assertThrows(IllegalArgumentException.class, () -> new FairScheduler(0));
+    }
+
+    @Test
+    void lanesTakeTurns() throws InterruptedException {
+        final FairScheduler scheduler = new FairScheduler(1);
+        final FairScheduler.Lane a = scheduler.lane("a");
+        final FairScheduler.Lane b = scheduler.lane("b");
+        assertSame(a, scheduler.lane("a"));
+        a.acquire();
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<String>> runs = new ArrayList<>();
+        for (String name : List.of("a1", "a2", "a3")) {
+            runs.add(a.run(() -> record(order, name)));
+        }
+        runs.add(b.run(() -> record(order, "b1")));
+        assertTrue(order.isEmpty());
+        // each completed run hands its permit on, so releasing the first one runs them all
+        a.release();
+        assertEquals(List.of("a1", "b1", "a2", "a3"), order);
+        runs.forEach(run -> assertTrue(run.isDone()));
+    }
+
+    @Test
+    void permitsAreSharedByLanes() throws InterruptedException {
+        final FairScheduler scheduler = new FairScheduler(2);
+        scheduler.lane("a").acquire();
+        scheduler.lane("b").acquire();
+        final CompletableFuture<String> waiting = scheduler.lane("c").run(() -> CompletableFuture.completedFuture("c"));
+        assertFalse(waiting.isDone());
+        scheduler.lane("b").release();
+        assertTrue(waiting.isDone());
+    }
+
+    @Test
+    void interruptedAcquireTakesNoPermit() throws InterruptedException {
+        final FairScheduler scheduler = new FairScheduler(1);
+        final FairScheduler.Lane lane = scheduler.lane("a");
+        lane.acquire();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                lane.acquire();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        waiter.interrupt();
+        waiter.join();
+        assertTrue(interrupted.get());
+        // the permit goes back to the scheduler rather than to the waiter which gave up
+        lane.release();
+        lane.acquire();
+        final CompletableFuture<String> next = scheduler.lane("b").run(() -> CompletableFuture.completedFuture("b"));
+        assertFalse(next.isDone());
+        lane.release();
+        assertTrue(next.isDone());
+    }
+
+    private static CompletableFuture<String> record(final List<String> order, final String name) {
+        order.add(name);
+        return CompletableFuture.completedFuture(name);
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GraphQLClientTest {
+    private static final ZonedDateTime CREATED = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @TempDir
+    Path dir;
+
+    private Simulator simulator;
+    private Transport transport;
+    private MigrationJournal journal;
+
+    @BeforeEach
+    void start() throws IOException {
+        simulator = Simulator.start(List.of(), new Simulator.Settings(Duration.ZERO, Duration.ZERO, 5000, Duration.ofHours(1), 0, 0));
+        transport = new Transport();
+        journal = MigrationJournal.open(dir.resolve("journal"));
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        journal.close();
+        transport.close();
+        simulator.close();
+    }
+
+    @Test
+    void createsIssuesAndComments() throws IOException {
+        final Map<String, Integer> numbers = new HashMap<>();
+        final GitHub.GraphQLClient client = client(journal, 2);
+        client.createIssues(List.of(issue("A-1", "a1", "a2", "a3"), issue("A-2", "b1"), issue("A-3")), numbers);
+        assertEquals(Map.of("A-1", 1, "A-2", 2, "A-3", 3), numbers);
+        assertEquals(3, simulator.stats().issuesCreated());
+
+        client.createComments(List.of(issue("A-1", "a1", "a2", "a3"), issue("A-2", "b1"), issue("A-3")), numbers);
+        assertEquals(4, simulator.stats().commentsCreated());
+        // comments of an issue are created in order
+        assertTrue(journal.commentId("A-1", "a1") < journal.commentId("A-1", "a2"));
+        assertTrue(journal.commentId("A-1", "a2") < journal.commentId("A-1", "a3"));
+        assertTrue(journal.commentId("A-2", "b1") != -1);
+
+        // journaled comments are not created again
+        client.createComments(List.of(issue("A-1", "a1", "a2", "a3", "a4")), numbers);
+        assertEquals(5, simulator.stats().commentsCreated());
+        assertTrue(journal.commentId("A-1", "a3") < journal.commentId("A-1", "a4"));
+    }
+
+    @Test
+    void resolvesNodeIdsOfEarlierIssues() throws IOException {
+        final Map<String, Integer> numbers = new HashMap<>();
+        client(journal, 25).createIssues(List.of(issue("A-1"), issue("A-2")), numbers);
+        // a new client, such as one of a later run, only knows the issue numbers
+        final GitHub.GraphQLClient client = client(journal, 25);
+        client.createComments(List.of(issue("A-2", "c1")), Map.of("A-2", 2));
+        assertEquals(1, simulator.stats().commentsCreated());
+        assertTrue(journal.commentId("A-2", "c1") != -1);
+
+        final IOException e = assertThrows(IOException.class, () -> client.createComments(List.of(issue("A-9", "c1")), Map.of("A-9", 0)));
+        assertTrue(e.getMessage().contains("number of 0"), e.getMessage());
+        assertEquals(1, simulator.stats().commentsCreated());
+    }
+
+    @Test
+    void partialFailureKeepsCommentOrder() throws IOException {
+        final Map<String, Integer> numbers = new HashMap<>();
+        final GitHub.GraphQLClient client = client(journal, 25);
+        final Issue failing = new Issue("A-1", "A-1", "", null, null, Status.OPEN, null, CREATED, CREATED, null, List.of(
+            comment("a1", "first"), comment("a2", "x".repeat(70_000)), comment("a3", "third")));
+        final Issue other = issue("A-2", "b1", "b2", "b3");
+        client.createIssues(List.of(failing, other), numbers);
+
+        final IOException e = assertThrows(IOException.class, () -> client.createComments(List.of(failing, other), numbers));
+        assertTrue(e.getMessage().contains("too long"), e.getMessage());
+        // the mutations which succeeded in the failed batch are journaled, but no later comment was sent
+        assertTrue(journal.commentId("A-1", "a1") != -1);
+        assertEquals(-1, journal.commentId("A-1", "a2"));
+        assertEquals(-1, journal.commentId("A-1", "a3"));
+        assertTrue(journal.commentId("A-2", "b1") != -1);
+        assertTrue(journal.commentId("A-2", "b2") != -1);
+        assertEquals(-1, journal.commentId("A-2", "b3"));
+        assertEquals(3, simulator.stats().commentsCreated());
+    }
+
+    @Test
+    void mutationsCountAgainstRateLimit() throws IOException, InterruptedException {
+        simulator.close();
+        simulator = Simulator.start(List.of(), new Simulator.Settings(Duration.ZERO, Duration.ZERO, 3, Duration.ofHours(1), 0, 0));
+        final HttpResponse<String> first = createIssues(2);
+        assertEquals(200, first.statusCode());
+        assertEquals("1", first.headers().firstValue("X-RateLimit-Remaining").orElse(null));
+        // a request holding more mutations than the quota has left is rejected as a whole
+        final HttpResponse<String> second = createIssues(2);
+        assertEquals(403, second.statusCode());
+        assertEquals("0", second.headers().firstValue("X-RateLimit-Remaining").orElse(null));
+        assertEquals(2, simulator.stats().issuesCreated());
+        assertEquals(1, simulator.stats().rejected());
+    }
+
+    private GitHub.GraphQLClient client(final MigrationJournal journal, final int batchSize) {
+        final TokenPool tokens = new TokenPool(Map.of(), List.of("bot"), new RateLimitScheduler(100_000, 1_000_000));
+        final GitHub.Settings settings = new GitHub.Settings(URI.create("https://issues.example.com/"), "owner", "repo");
+        return new GitHub.GraphQLClient(transport, simulator.graphqlUrl(), settings, tokens, journal, batchSize);
+    }
+
+    private HttpResponse<String> createIssues(final int count) throws IOException, InterruptedException {
+        final StringBuilder query = new StringBuilder("mutation {");
+        final JsonObjectBuilder variables = Json.createObjectBuilder();
+        for (int i = 0; i < count; i++) {
+            query.append(" m").append(i).append(": createIssue(input: $m").append(i).append(") { issue { id number } }");
+            variables.add("m" + i, Json.createObjectBuilder().add("repositoryId", "R:owner/repo").add("title", "Issue").add("body", ""));
+        }
+        query.append(" }");
+        final String body = Json.createObjectBuilder().add("query", query.toString()).add("variables", variables).build().toString();
+        final HttpRequest request = transport.newRequest(simulator.graphqlUrl())
+            .setHeader("Authorization", "Bearer bot")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return transport.client().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Issue issue(final String key, final String... commentIds) {
+        return new Issue(key, key, "Issue " + key, null, null, Status.OPEN, null, CREATED, CREATED, null,
+            Arrays.stream(commentIds).map(id -> comment(id, "Comment " + id)).toList());
+    }
+
+    private static Comment comment(final String id, final String body) {
+        return new Comment(id, null, CREATED, body);
+    }
+}
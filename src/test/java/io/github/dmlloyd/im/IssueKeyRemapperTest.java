@@ -0,0 +1,133 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the remapper against the regular expression it replaced, and the cases where it deliberately differs.
+ */
+class IssueKeyRemapperTest {
+    private static final Map<String, Integer> NUMBERS = Map.of("WFLY-1", 1, "WFLY-2", 2, "WFLY-123", 5, "JBEAP-7", 7);
+
+    /**
+     * The regular expression based remapping which {@link IssueKeyRemapper} replaced.
+     */
+    private static String legacyRemap(final String text, final Map<String, Integer> numbers) {
+        final StringBuilder newBody = new StringBuilder(text.length());
+        final Matcher matcher = Pattern.compile("(?:https?://[a-zA-Z0-9./]+)?([A-Z0-9]+-\\d+)(?:\\\\?\\S+)?").matcher(text);
+        while (matcher.find()) {
+            final Integer id = numbers.get(matcher.group(1));
+            matcher.appendReplacement(newBody, id != null ? "#" + id : matcher.group(0));
+        }
+        matcher.appendTail(newBody);
+        return newBody.toString();
+    }
+
+    private static void assertRemapped(final String expected, final String text) {
+        assertEquals(expected, IssueKeyRemapper.remap(text, NUMBERS), "generic map");
+        assertEquals(expected, IssueKeyRemapper.remap(text, new IssueNumberMap(NUMBERS)), "issue number map");
+    }
+
+    private static void assertLikeLegacy(final String text) {
+        assertRemapped(legacyRemap(text, NUMBERS), text);
+    }
+
+    @Test
+    void plainKeys() {
+        assertLikeLegacy("See WFLY-123 for the details.");
+        assertRemapped("See #5 for", "See WFLY-123 for");
+        assertLikeLegacy("WFLY-1 and JBEAP-7 and WFLY-2");
+        assertRemapped("#1 and #7 and #2", "WFLY-1 and JBEAP-7 and WFLY-2");
+    }
+
+    @Test
+    void unmappedKeysAreKeptVerbatim() {
+        assertLikeLegacy("WFLY-999 and WFCORE-1 stay");
+        assertRemapped("WFLY-999 and WFCORE-1 stay", "WFLY-999 and WFCORE-1 stay");
+        // too large for an issue number
+        assertRemapped("WFLY-99999999999 stays", "WFLY-99999999999 stays");
+    }
+
+    @Test
+    void textWithoutKeysIsReturnedAsIs() {
+        final String text = "nothing to see here, not even wfly-1 or -1 or WFLY- or WFLY-x";
+        assertSame(text, IssueKeyRemapper.remap(text, NUMBERS));
+        assertFalse(IssueKeyRemapper.hasReferences(text));
+        assertTrue(IssueKeyRemapper.hasReferences("a WFLY-1 reference"));
+        assertTrue(IssueKeyRemapper.hasReferences("unmapped ABC-9"));
+    }
+
+    @Test
+    void referenceSwallowsFollowingNonWhitespace() {
+        // adjacent keys are a single reference, as before
+        assertLikeLegacy("WFLY-1,WFLY-2 next");
+        assertRemapped("#1 next", "WFLY-1,WFLY-2 next");
+        assertLikeLegacy("[WFLY-1](https://example.com/x) after");
+        assertRemapped("[#1 after", "[WFLY-1](https://example.com/x) after");
+        assertLikeLegacy("WFLY-1\tWFLY-2\nJBEAP-7\r\nWFLY-123");
+        assertRemapped("#1\t#2\n#7\r\n#5", "WFLY-1\tWFLY-2\nJBEAP-7\r\nWFLY-123");
+    }
+
+    @Test
+    void nonAsciiBoundaries() {
+        // keys are not bounded by word boundaries, and non-ASCII characters never belong to a key
+        assertLikeLegacy("ÄWFLY-1 ö");
+        assertRemapped("Ä#1 ö", "ÄWFLY-1 ö");
+        assertLikeLegacy("WFLY-1é and WFLY-2\u00a0next");
+        assertRemapped("#1 and #2", "WFLY-1é and WFLY-2\u00a0next");
+        assertLikeLegacy("«WFLY-123» 🙂 JBEAP-7");
+        assertRemapped("«#5 🙂 #7", "«WFLY-123» 🙂 JBEAP-7");
+    }
+
+    @Test
+    void urlLastSegmentIsTheKey() {
+        assertRemapped("see #5 now", "see https://issues.redhat.com/browse/WFLY-123 now");
+        assertRemapped("see #1", "see http://issues.redhat.com/browse/WFLY-1");
+        // the regular expression backtracked into the last segment, and looked up Y-123 instead
+        assertEquals("see https://issues.redhat.com/browse/WFLY-123 now", legacyRemap("see https://issues.redhat.com/browse/WFLY-123 now", NUMBERS));
+        assertEquals("#5", legacyRemap("https://issues.redhat.com/browse/WFLY-123", Map.of("Y-123", 5)));
+        // an unmapped URL is kept as a whole
+        assertRemapped("https://issues.redhat.com/browse/WFLY-9", "https://issues.redhat.com/browse/WFLY-9");
+        // the key ends the URL, so a URL with more segments after the key is a reference as a whole as well
+        assertRemapped("#1", "https://example.com/WFLY-1/details");
+        assertRemapped("https://example.com/WFLY-9/details", "https://example.com/WFLY-9/details");
+    }
+
+    @Test
+    void replacementCharactersArePreserved() {
+        // appendReplacement treated these as group references and escapes
+        assertRemapped("costs $5 and C:\\dir #1", "costs $5 and C:\\dir WFLY-1");
+        assertRemapped("WFLY-9$1 and WFLY-9\\x", "WFLY-9$1 and WFLY-9\\x");
+        assertRemapped("#1", "WFLY-1$1");
+    }
+
+    @Test
+    void randomTextMatchesLegacy() {
+        // without URLs and replacement characters, which are handled differently on purpose
+        final List<String> tokens = List.of("WFLY-1", "WFLY-2", "WFLY-123", "JBEAP-7", "WFLY-77", "ABC-1", "wfly-1", "WFLY-",
+            "-1", "WFLY", "123", "text", ",", ".", "(", ")", "[", "]", "é", "Ü", "\u00a0", " ", " ", "\n", "\t", "-");
+        final Random random = new Random(42);
+        final Map<String, Integer> numbers = new HashMap<>(NUMBERS);
+        for (int i = 0; i < 2000; i++) {
+            final StringBuilder text = new StringBuilder();
+            final int count = random.nextInt(20);
+            for (int j = 0; j < count; j++) {
+                text.append(tokens.get(random.nextInt(tokens.size())));
+            }
+            final String s = text.toString();
+            assertEquals(legacyRemap(s, numbers), IssueKeyRemapper.remap(s, numbers), s);
+            assertEquals(legacyRemap(s, numbers), IssueKeyRemapper.remap(s, new IssueNumberMap(numbers)), s);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IssueNumberMapTest {
+
+    @Test
+    void putAndGet() {
+        final IssueNumberMap map = new IssueNumberMap();
+        assertNull(map.put("WFLY-1", 10));
+        assertNull(map.put("WFCORE-1", 20));
+        assertEquals(10, map.put("WFLY-1", 11));
+        assertEquals(11, map.get("WFLY-1"));
+        assertEquals(20, map.get("WFCORE-1"));
+        assertNull(map.get("WFLY-2"));
+        assertNull(map.get("WFLY"));
+        assertNull(map.get("WFLY-x"));
+        assertNull(map.get(Integer.valueOf(1)));
+        assertEquals(2, map.size());
+        assertEquals(11, map.lookup("see WFLY-1", 4, 8, 1));
+        assertEquals(-1, map.lookup("see WFLY-1", 4, 8, 2));
+        assertEquals(Map.of("WFLY-1", 11, "WFCORE-1", 20), map);
+    }
+
+    @Test
+    void invalidMappingsAreRejected() {
+        final IssueNumberMap map = new IssueNumberMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put("WFLY", 1));
+        assertThrows(IllegalArgumentException.class, () -> map.put("-1", 1));
+        assertThrows(IllegalArgumentException.class, () -> map.put("WFLY-1", -1));
+        assertThrows(IllegalArgumentException.class, () -> map.put("WFLY-1", null));
+    }
+
+    @Test
+    void remove() {
+        final IssueNumberMap map = new IssueNumberMap(Map.of("WFLY-1", 1, "WFLY-2", 2));
+        assertEquals(1, map.remove("WFLY-1"));
+        assertNull(map.remove("WFLY-1"));
+        assertNull(map.remove("NOPE-1"));
+        assertNull(map.remove("WFLY"));
+        assertNull(map.get("WFLY-1"));
+        assertFalse(map.containsKey("WFLY-1"));
+        assertEquals(2, map.get("WFLY-2"));
+        assertEquals(1, map.size());
+        assertNull(map.put("WFLY-1", 3));
+        assertEquals(3, map.get("WFLY-1"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void removeThroughViews() {
+        final IssueNumberMap map = new IssueNumberMap(Map.of("WFLY-1", 1, "WFLY-2", 2, "WFLY-3", 3));
+        map.keySet().remove("WFLY-2");
+        map.values().removeIf(v -> v.intValue() == 3);
+        assertEquals(Map.of("WFLY-1", 1), map);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("WFLY-1"));
+        map.put("WFLY-4", 4);
+        assertEquals(Map.of("WFLY-4", 4), map);
+    }
+
+    @Test
+    void matchesHashMapUnderRandomChurn() {
+        // enough churn that the table is rehashed many times, both to grow and to drop tombstones
+        final IssueNumberMap map = new IssueNumberMap();
+        final Map<String, Integer> expected = new HashMap<>();
+        final Random random = new Random(7);
+        final String[] projects = { "WFLY", "WFCORE", "JBEAP", "UNDERTOW" };
+        for (int i = 0; i < 200_000; i++) {
+            final String key = projects[random.nextInt(projects.length)] + '-' + random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key), key);
+            } else {
+                final Integer value = Integer.valueOf(random.nextInt(100_000));
+                assertEquals(expected.put(key, value), map.put(key, value), key);
+            }
+            if (i % 10_000 == 0) {
+                assertEquals(expected, map);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
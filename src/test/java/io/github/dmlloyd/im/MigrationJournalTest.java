@@ -0,0 +1,115 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MigrationJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysRecords() throws IOException {
+        final Path file = dir.resolve("journal");
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            journal.recordIssue("A-1", 1, 41);
+            journal.recordIssue("A-2", 2, 42);
+            journal.recordComment("A-1", "10001", 501, 6);
+            journal.recordComment("A-1", "10002", 502, 7);
+            journal.recordComment("A-2", "10003", 503, 8);
+        }
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            assertEquals(Map.of("A-1", 1, "A-2", 2), journal.issueNumbers());
+            assertEquals(41, journal.issueHash("A-1"));
+            assertEquals(42, journal.issueHash("A-2"));
+            assertEquals(0, journal.issueHash("A-3"));
+            assertEquals(Map.of("10001", 501L, "10002", 502L), journal.commentIds("A-1"));
+            assertEquals(503, journal.commentId("A-2", "10003"));
+            assertEquals(7, journal.commentHash("A-1", "10002"));
+            assertEquals(-1, journal.commentId("A-2", "10001"));
+            assertEquals(0, journal.commentHash("A-2", "10001"));
+            assertEquals(-1, journal.issueNumber("A-3"));
+        }
+    }
+
+    @Test
+    void recordingAgainReplacesHash() throws IOException {
+        final Path file = dir.resolve("journal");
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            journal.recordIssue("A-1", 1, 41);
+            journal.recordComment("A-1", "10001", 501, 7);
+            journal.recordIssue("A-1", 1, 43);
+            journal.recordComment("A-1", "10001", 501, 8);
+            assertEquals(43, journal.issueHash("A-1"));
+            assertEquals(8, journal.commentHash("A-1", "10001"));
+        }
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            assertEquals(43, journal.issueHash("A-1"));
+            assertEquals(8, journal.commentHash("A-1", "10001"));
+        }
+    }
+
+    @Test
+    void tornRecordIsTruncated() throws IOException {
+        final Path file = dir.resolve("journal");
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            journal.recordIssue("A-1", 1, 41);
+            journal.recordIssue("A-2", 2, 42);
+        }
+        final long intact = Files.size(file);
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            journal.recordIssue("A-3", 3, 43);
+        }
+        // tear the last record, as a crash while writing it would
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            assertEquals(Map.of("A-1", 1, "A-2", 2), journal.issueNumbers());
+            assertEquals(intact, Files.size(file));
+            // records after the truncation point are replayed normally
+            journal.recordIssue("A-4", 4, 44);
+        }
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            assertEquals(Map.of("A-1", 1, "A-2", 2, "A-4", 4), journal.issueNumbers());
+        }
+    }
+
+    @Test
+    void corruptRecordEndsReplay() throws IOException {
+        final Path file = dir.resolve("journal");
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            journal.recordIssue("A-1", 1, 41);
+        }
+        final long intact = Files.size(file);
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            journal.recordIssue("A-2", 2, 42);
+            journal.recordIssue("A-3", 3, 43);
+        }
+        // flip a byte of the issue number of A-2, so its checksum no longer matches
+        final byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) intact + 4 + 1 + 2 + 3] ^= 1;
+        Files.write(file, bytes);
+        try (MigrationJournal journal = MigrationJournal.open(file)) {
+            assertEquals(Map.of("A-1", 1), journal.issueNumbers());
+            assertEquals(intact, Files.size(file));
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        final Path file = dir.resolve("journal");
+        Files.writeString(file, "not a journal", StandardOpenOption.CREATE_NEW);
+        final IOException e = assertThrows(IOException.class, () -> MigrationJournal.open(file));
+        assertTrue(e.getMessage().contains("not a migration journal"), e.getMessage());
+    }
+}
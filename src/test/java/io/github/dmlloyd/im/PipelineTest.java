@@ -0,0 +1,190 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(30)
+class PipelineTest {
+
+    @Test
+    void endPropagatesThroughWorkers() throws Exception {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(Integer.valueOf(i));
+        }
+        final ConcurrentLinkedQueue<Integer> out = new ConcurrentLinkedQueue<>();
+        final Pipeline pipeline = new Pipeline();
+        pipeline.source("source", 4, items)
+            .map("double", 4, 4, i -> Integer.valueOf(i.intValue() * 2))
+            // null results are dropped
+            .map("filter", 3, 4, i -> i.intValue() % 4 == 0 ? i : null)
+            .forEach("sink", 2, out::add);
+        pipeline.run();
+        assertEquals(500, out.size());
+        assertEquals(500 * 998, out.stream().mapToInt(Integer::intValue).sum());
+        assertThrows(IllegalStateException.class, pipeline::run);
+    }
+
+    @Test
+    void failureInterruptsAllStages() {
+        final AtomicInteger interrupted = new AtomicInteger();
+        final Pipeline pipeline = new Pipeline();
+        final IOException boom = new IOException("boom");
+        // an endless source, which only stops when it is interrupted
+        pipeline.<Integer>source("source", 2, () -> new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public Integer next() {
+                    return Integer.valueOf(next++);
+                }
+            })
+            .map("map", 2, 2, i -> i)
+            .forEach("sink", 2, i -> {
+                if (i.intValue() == 0) {
+                    try {
+                        Thread.sleep(Long.MAX_VALUE);
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                        throw e;
+                    }
+                } else if (i.intValue() == 10) {
+                    throw boom;
+                }
+            });
+        assertSame(boom, assertThrows(IOException.class, pipeline::run));
+        assertEquals(1, interrupted.get());
+        // the interruptions of the other stages are not reported
+        assertEquals(0, boom.getSuppressed().length);
+    }
+
+    @Test
+    void failureCancelsPublisher() throws InterruptedException {
+        final EndlessPublisher publisher = new EndlessPublisher();
+        final Pipeline pipeline = new Pipeline();
+        pipeline.source("source", 2, publisher)
+            .forEach("sink", 1, i -> {
+                if (i.intValue() == 5) {
+                    throw new IOException("boom");
+                }
+            });
+        assertThrows(IOException.class, pipeline::run);
+        assertTrue(publisher.cancelled.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void publisherItemsPassThrough() throws Exception {
+        final ConcurrentLinkedQueue<Integer> out = new ConcurrentLinkedQueue<>();
+        final Pipeline pipeline = new Pipeline();
+        pipeline.source("source", 1, new EndlessPublisher(100))
+            .forEach("sink", 3, out::add);
+        pipeline.run();
+        assertEquals(100, out.size());
+    }
+
+    @Test
+    void batchesGroupQueuedItems() throws Exception {
+        final CountDownLatch sourced = new CountDownLatch(1);
+        final Iterable<Integer> items = () -> new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == 100) {
+                    sourced.countDown();
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return Integer.valueOf(next++);
+            }
+        };
+        final List<List<Integer>> out = new ArrayList<>();
+        final Pipeline pipeline = new Pipeline();
+        pipeline.source("source", 100, items)
+            .batch("batch", 4, 1)
+            .forEach("sink", 1, batch -> {
+                // hold the batches back until every item is queued
+                sourced.await();
+                out.add(batch);
+            });
+        pipeline.run();
+        assertEquals(IntStream.range(0, 100).boxed().toList(), out.stream().flatMap(List::stream).toList());
+        assertTrue(out.stream().allMatch(batch -> batch.size() <= 4));
+        // at most three batches were made before the sink was let go, and the items queued by then were grouped
+        assertTrue(out.stream().filter(batch -> batch.size() == 4).count() >= 22, out::toString);
+        assertThrows(IllegalArgumentException.class, () -> new Pipeline().source("source", 1, items).batch("batch", 0, 1));
+    }
+
+    /**
+     * Publishes ascending numbers on its own thread, as demanded, until it is cancelled or reaches its limit.
+     */
+    private static final class EndlessPublisher implements Flow.Publisher<Integer> {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        private final int limit;
+
+        EndlessPublisher() {
+            this(Integer.MAX_VALUE);
+        }
+
+        EndlessPublisher(final int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super Integer> subscriber) {
+            final Semaphore demand = new Semaphore(0);
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(final long n) {
+                    demand.release((int) Math.min(n, Integer.MAX_VALUE));
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.countDown();
+                }
+            });
+            Thread.ofVirtual().start(() -> {
+                try {
+                    int next = 0;
+                    while (cancelled.getCount() > 0) {
+                        if (next == limit) {
+                            subscriber.onComplete();
+                            return;
+                        }
+                        if (demand.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                            subscriber.onNext(Integer.valueOf(next++));
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+    }
+}
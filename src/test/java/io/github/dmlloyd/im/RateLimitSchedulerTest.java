@@ -0,0 +1,136 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.net.ssl.SSLSession;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import org.junit.jupiter.api.Test;
+
+class RateLimitSchedulerTest {
+
+    @Test
+    void retryAfterSeconds() {
+        assertEquals(Duration.ofSeconds(30), RateLimitScheduler.retryAfter(headers(Map.of("Retry-After", "30")), 0));
+        assertEquals(Duration.ZERO, RateLimitScheduler.retryAfter(headers(Map.of("Retry-After", "-5")), 0));
+        assertNull(RateLimitScheduler.retryAfter(headers(Map.of()), 0));
+        assertNull(RateLimitScheduler.retryAfter(headers(Map.of("Retry-After", "soon")), 0));
+    }
+
+    @Test
+    void retryAfterHttpDate() {
+        final ZonedDateTime now = ZonedDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+        final String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(now.plusSeconds(90));
+        assertEquals(Duration.ofSeconds(90), RateLimitScheduler.retryAfter(headers(Map.of("Retry-After", date)), now.toInstant().toEpochMilli()));
+        // a date in the past means right away
+        assertEquals(Duration.ZERO, RateLimitScheduler.retryAfter(headers(Map.of("Retry-After", "Wed, 01 May 2024 11:00:00 GMT")), now.toInstant().toEpochMilli()));
+    }
+
+    @Test
+    void retryAfterBlocksToken() {
+        final RateLimitScheduler scheduler = new RateLimitScheduler(1000, 1000);
+        assertTrue(scheduler.update("t", response(429, Map.of("Retry-After", "120"), "slow down")));
+        assertTrue(scheduler.reserve("t").compareTo(Duration.ofSeconds(110)) > 0);
+        // other tokens are not affected
+        assertEquals(Duration.ZERO, scheduler.reserve("u"));
+    }
+
+    @Test
+    void tooManyRequestsBacksOff() {
+        final RateLimitScheduler scheduler = new RateLimitScheduler(1000, 1000);
+        assertTrue(scheduler.update("t", response(429, Map.of(), "slow down")));
+        assertTrue(scheduler.reserve("t").compareTo(Duration.ofSeconds(55)) > 0);
+    }
+
+    @Test
+    void secondaryRateLimitForbiddenBacksOff() {
+        final RateLimitScheduler scheduler = new RateLimitScheduler(1000, 1000);
+        final Map<String, String> headers = Map.of("X-RateLimit-Remaining", "4000", "X-RateLimit-Reset", Long.toString(System.currentTimeMillis() / 1000 + 3600));
+        assertTrue(scheduler.update("t", response(403, headers, "You have exceeded a secondary rate limit. Please wait a few minutes before you try again.")));
+        assertTrue(scheduler.reserve("t").compareTo(Duration.ofSeconds(55)) > 0);
+    }
+
+    @Test
+    void primaryRateLimitWaitsForReset() {
+        final RateLimitScheduler scheduler = new RateLimitScheduler(1000, 1000);
+        final Map<String, String> headers = Map.of("X-RateLimit-Remaining", "0", "X-RateLimit-Reset", Long.toString(System.currentTimeMillis() / 1000 + 600));
+        assertTrue(scheduler.update("t", response(403, headers, "API rate limit exceeded")));
+        assertTrue(scheduler.reserve("t").compareTo(Duration.ofSeconds(590)) > 0);
+        assertEquals(0, scheduler.remaining("t"));
+    }
+
+    @Test
+    void permissionDeniedIsNotRateLimit() {
+        final RateLimitScheduler scheduler = new RateLimitScheduler(1000, 1000);
+        final Map<String, String> headers = Map.of("X-RateLimit-Remaining", "4000", "X-RateLimit-Reset", Long.toString(System.currentTimeMillis() / 1000 + 3600));
+        assertFalse(scheduler.update("t", response(403, headers, "Resource not accessible by integration")));
+        assertEquals(Duration.ZERO, scheduler.reserve("t"));
+        assertFalse(scheduler.update("t", response(201, headers, null)));
+        assertEquals(4000, scheduler.remaining("t"));
+    }
+
+    @Test
+    void contentCreationIsPaced() {
+        final RateLimitScheduler scheduler = new RateLimitScheduler(2, 1000);
+        assertEquals(Duration.ZERO, scheduler.reserve("t"));
+        assertEquals(Duration.ZERO, scheduler.reserve("t"));
+        // the third request of the minute has to wait for a refill of the bucket
+        assertTrue(scheduler.reserve("t").compareTo(Duration.ofSeconds(25)) > 0);
+        assertEquals(Duration.ZERO, scheduler.reserve("u"));
+    }
+
+    private static HttpHeaders headers(final Map<String, String> headers) {
+        return HttpHeaders.of(headers.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> List.of(e.getValue()))), (a, b) -> true);
+    }
+
+    private static HttpResponse<JsonObject> response(final int status, final Map<String, String> headers, final String message) {
+        final JsonObject body = message == null ? JsonValue.EMPTY_JSON_OBJECT : Json.createObjectBuilder().add("message", message).build();
+        return new TestResponse(status, headers(headers), body);
+    }
+
+    private record TestResponse(int statusCode, HttpHeaders headers, JsonObject body) implements HttpResponse<JsonObject> {
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(uri()).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<JsonObject>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return URI.create("https://api.github.com/");
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.dmlloyd.im;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TokenPoolTest {
+
+    @Test
+    void usersWriteWithTheirOwnToken() throws IOException {
+        final TokenPool pool = pool();
+        assertEquals("alice-token", pool.select("alice"));
+        assertTrue(List.of("bot1", "bot2").contains(pool.select("bob")));
+        assertTrue(List.of("bot1", "bot2").contains(pool.select(null)));
+    }
+
+    @Test
+    void unauthorizedTokenIsDisabled() throws IOException {
+        final TokenPool pool = pool();
+        assertTrue(pool.completed("alice-token", 401));
+        assertTrue(List.of("bot1", "bot2").contains(pool.select("alice")));
+        assertTrue(pool.completed("bot1", 401));
+        assertEquals("bot2", pool.select(null));
+        assertTrue(pool.completed("bot2", 401));
+        final IOException e = assertThrows(IOException.class, () -> pool.select(null));
+        assertTrue(e.getMessage().contains("rejected"), e.getMessage());
+    }
+
+    @Test
+    void noBotTokens() {
+        final TokenPool pool = new TokenPool(Map.of(), List.of(), new RateLimitScheduler());
+        final IOException e = assertThrows(IOException.class, () -> pool.select(null));
+        assertEquals("No GitHub token given", e.getMessage());
+    }
+
+    @Test
+    void serverErrorBacksOffToken() throws IOException {
+        final TokenPool pool = pool();
+        assertEquals("bot1", pool.select(null));
+        assertFalse(pool.completed("bot1", 502));
+        assertEquals("bot2", pool.select(null));
+        // a success ends the backoff
+        assertFalse(pool.completed("bot1", 200));
+        assertEquals("bot1", pool.select(null));
+        pool.failed("bot1");
+        assertEquals("bot2", pool.select(null));
+    }
+
+    @Test
+    void writesSpreadAcrossBots() throws IOException, InterruptedException {
+        final TokenPool pool = new TokenPool(Map.of(), List.of("bot1", "bot2"), new RateLimitScheduler(1, 100));
+        final String first = pool.acquire(null);
+        final String second = pool.acquire(null);
+        assertNotEquals(first, second);
+        // both tokens used up their slot for this minute
+        assertTrue(pool.scheduler().availableIn(first).compareTo(Duration.ofSeconds(30)) > 0);
+        assertTrue(pool.scheduler().availableIn(second).compareTo(Duration.ofSeconds(30)) > 0);
+    }
+
+    @Test
+    void lanesShareHealth() throws IOException {
+        final TokenPool pool = pool();
+        final TokenPool lane = pool.lane("project");
+        assertTrue(pool.completed("bot1", 401));
+        assertEquals("bot2", lane.select(null));
+        assertEquals("bot2", lane.select("bob"));
+    }
+
+    private static TokenPool pool() {
+        return new TokenPool(Map.of("alice", "alice-token"), List.of("bot1", "bot2"), new RateLimitScheduler(1000, 1000));
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.dmlloyd.im.jira;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.github.dmlloyd.im.Comment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JiraSnapshotTest {
+    private static final JiraUser ALICE = new JiraUser("alice", "alice", "Alice", true);
+    private static final JiraUser BOB = new JiraUser("bob", "bob", "Bob", false);
+    private static final ZonedDateTime CREATED = ZonedDateTime.of(2019, 3, 1, 9, 30, 0, 0, ZoneId.of("Europe/Prague"));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip() throws IOException {
+        final Path file = dir.resolve("snapshot");
+        final Set<JiraComment> comments = new LinkedHashSet<>();
+        comments.add(new JiraComment("10002", BOB, ALICE, CREATED.plusDays(2), CREATED.plusDays(3), "<p>second</p>"));
+        comments.add(new JiraComment("10001", ALICE, null, CREATED.plusDays(1), null, "<p>first</p>"));
+        final List<JiraIssue> issues = List.of(
+            new JiraIssue("<p>Description</p>", "B-2", "Second", "Bug", "Major", ALICE, BOB, CREATED, CREATED.plusDays(3), comments),
+            new JiraIssue(null, "A-1", "First", "Task", null, null, ALICE, CREATED.withZoneSameInstant(ZoneOffset.UTC), null, Set.of()),
+            new JiraIssue("", "C-3", "No comments", "Bug", "Minor", null, null, null, null, null));
+        try (JiraSnapshot.Writer writer = JiraSnapshot.create(file)) {
+            for (JiraIssue issue : issues) {
+                assertTrue(writer.add(issue));
+            }
+            assertFalse(writer.add(issues.get(0)));
+        }
+        final JiraSnapshot snapshot = JiraSnapshot.open(file);
+        assertEquals(3, snapshot.size());
+        final List<JiraIssue> read = new ArrayList<>();
+        snapshot.forEach(read::add);
+        assertEquals(issues, read);
+        // comments keep their order and ids
+        assertEquals(List.copyOf(comments), List.copyOf(read.get(0).comments()));
+        assertEquals(issues.get(1), snapshot.get("A-1"));
+        assertNull(snapshot.get("D-4"));
+        assertEquals(Set.of(ALICE, BOB), Set.copyOf(snapshot.users()));
+        // users are stored once, and shared by every issue they appear in
+        assertSame(read.get(0).assignee(), read.get(1).reporter());
+
+        final List<String> keys = new ArrayList<>();
+        for (JiraSnapshot.Handle handle : snapshot.handles()) {
+            keys.add(handle.key());
+            assertEquals(snapshot.get(handle.key()), handle.issue());
+        }
+        assertEquals(List.of("B-2", "A-1", "C-3"), keys);
+
+        final List<Comment> converted = snapshot.get("B-2").toIssue().comments();
+        assertEquals(List.of("10001", "10002"), converted.stream().map(Comment::id).toList());
+    }
+
+    @Test
+    void abortKeepsPreviousSnapshot() throws IOException {
+        final Path file = dir.resolve("snapshot");
+        try (JiraSnapshot.Writer writer = JiraSnapshot.create(file)) {
+            writer.add(new JiraIssue(null, "A-1", "First", "Task", null, null, null, CREATED, CREATED, Set.of()));
+        }
+        final JiraSnapshot.Writer writer = JiraSnapshot.create(file);
+        writer.add(new JiraIssue(null, "A-2", "Second", "Task", null, null, null, CREATED, CREATED, Set.of()));
+        writer.abort();
+        final JiraSnapshot snapshot = JiraSnapshot.open(file);
+        assertEquals(1, snapshot.size());
+        assertEquals("First", snapshot.get("A-1").summary());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        final Path file = dir.resolve("snapshot");
+        Files.writeString(file, "this is not a snapshot, but is long enough to have a footer");
+        assertThrows(IOException.class, () -> JiraSnapshot.open(file));
+    }
+}